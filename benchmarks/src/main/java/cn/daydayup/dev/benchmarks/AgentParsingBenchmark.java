@@ -0,0 +1,70 @@
+package cn.daydayup.dev.benchmarks;
+
+import cn.daydayup.dev.mcpserverplus.agent.SqlQueryAgent;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName AgentParsingBenchmark
+ * @Description 智能体每次请求都会执行的解析：表信息转换、多条SQL拆分、从代码块中提取SQL
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 19:40
+ * @Version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentParsingBenchmark {
+
+    /**
+     * 表清单或表结构的行数
+     */
+    @Param({"10", "1000"})
+    public int rows;
+
+    private Pair<List<String>, List<List<String>>> tableInfo;
+
+    private String llmOutput;
+
+    private String multiStatementSql;
+
+    private final SqlQueryAgent agent = SqlQueryAgent.builder().build();
+
+    @Setup
+    public void setUp() {
+        tableInfo = Fixtures.table(rows, 4);
+        multiStatementSql = Fixtures.multiStatementSql(5);
+        llmOutput = "根据表结构生成的SQL如下：\n```sql\n" + multiStatementSql + "\n```\n";
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> convert() {
+        return SqlQueryAgent.convert(tableInfo);
+    }
+
+    @Benchmark
+    public List<String> extractSqlQueries() {
+        return SqlQueryAgent.extractSqlQueries(multiStatementSql);
+    }
+
+    @Benchmark
+    public String getSqlFromCodeBlock() {
+        return agent.getSqlFromCodeBlock(llmOutput);
+    }
+}
@@ -0,0 +1,82 @@
+package cn.daydayup.dev.benchmarks;
+
+import cn.daydayup.dev.mcpserver.server.WenShuMcpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName DecimalBenchmark
+ * @Description execute_mysql_query 对一行单元格的小数处理：按字符串判断的原实现与按列类型处理的当前实现
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 19:40
+ * @Version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecimalBenchmark {
+
+    /**
+     * 一行中常见的单元格：字符串、整数、日期、短小数和长小数
+     */
+    private final Object[] cells = {"阿勒泰", 2024, "2024-03-01", new BigDecimal("12.5"), 3.1415926535, null};
+
+    /**
+     * 与 cells 对应的列是否为小数类型
+     */
+    private final boolean[] decimalColumns = {false, false, false, true, true, true};
+
+    /**
+     * 原实现：每个单元格转字符串，用 Double.parseDouble 判断是否为小数，再从字符串构建BigDecimal
+     */
+    @Benchmark
+    public void stringRoundTrip(Blackhole blackhole) {
+        for (Object cell : cells) {
+            String value = String.valueOf(cell);
+            boolean decimal;
+            try {
+                Double.parseDouble(value);
+                decimal = value.indexOf('.') >= 0;
+            } catch (NumberFormatException e) {
+                decimal = false;
+            }
+            if (decimal) {
+                BigDecimal number = new BigDecimal(value);
+                blackhole.consume(number.scale() > 4 ? number.setScale(4, RoundingMode.HALF_UP) : number);
+            } else {
+                blackhole.consume(cell);
+            }
+        }
+    }
+
+    /**
+     * 当前实现：只有小数类型的列做处理，不经过字符串
+     */
+    @Benchmark
+    public void typedColumns(Blackhole blackhole) {
+        for (int i = 0; i < cells.length; i++) {
+            Object cell = cells[i];
+            if (!decimalColumns[i] || cell == null) {
+                blackhole.consume(cell);
+            } else if (cell instanceof BigDecimal number) {
+                blackhole.consume(WenShuMcpServer.limitDecimalPlaces(number));
+            } else {
+                blackhole.consume(WenShuMcpServer.limitDecimalPlaces(BigDecimal.valueOf((Double) cell)));
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package cn.daydayup.dev.benchmarks;
+
+import org.apache.commons.lang3.tuple.Pair;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * @ClassName Fixtures
+ * @Description 基准测试数据：按售电量表的数据分布生成，固定随机种子保证每次运行数据相同
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 19:40
+ * @Version 1.0
+ */
+final class Fixtures {
+
+    private static final String[] ORGS = {"阿勒泰", "乌鲁木齐", "克拉玛依", "吐鲁番", "哈密", "昌吉", "伊犁", "塔城"};
+    private static final String[] INDUSTRIES = {"农、林、牧、渔业", "工业", "建筑业", "交通运输、仓储和邮政业",
+            "信息传输、软件和信息技术服务业", "批发和零售业", "住宿和餐饮业", "金融业"};
+
+    private Fixtures() {
+    }
+
+    /**
+     * 表头 + 数据行，与 connector-core 和 SchemaCatalog 的返回结构一致
+     */
+    static Pair<List<String>, List<List<String>>> table(int rows, int columns) {
+        Random random = new Random(42);
+        List<String> headers = new ArrayList<>(columns);
+        for (int c = 0; c < columns; c++) {
+            headers.add(header(c));
+        }
+        List<List<String>> data = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            List<String> row = new ArrayList<>(columns);
+            for (int c = 0; c < columns; c++) {
+                row.add(String.valueOf(value(random, r, c)));
+            }
+            data.add(row);
+        }
+        return Pair.of(headers, data);
+    }
+
+    /**
+     * 每行一个 列名 -> 值 的Map，值的类型与JDBC返回的类型一致
+     */
+    static List<Map<String, Object>> records(int rows, int columns) {
+        Random random = new Random(42);
+        List<Map<String, Object>> records = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            for (int c = 0; c < columns; c++) {
+                record.put(header(c), value(random, r, c));
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * 大模型生成的带注释的多条SQL
+     */
+    static String multiStatementSql(int statements) {
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            sql.append("-- 查询").append(ORGS[i % ORGS.length]).append("各月的行业售电量\n")
+                    .append("SELECT\n")
+                    .append("  power_month AS '周期月',\n")
+                    .append("  hy_name AS '行业名称',\n")
+                    .append("  power_num AS '售电量'\n")
+                    .append("FROM tb_dlyc_area_hy_month\n")
+                    .append("/* 按地区和年份筛选 */\n")
+                    .append("WHERE org_name = '").append(ORGS[i % ORGS.length]).append("' AND power_year = '2024'\n")
+                    .append("ORDER BY power_num DESC;\n");
+        }
+        return sql.toString();
+    }
+
+    private static String header(int column) {
+        return switch (column) {
+            case 0 -> "org_name";
+            case 1 -> "hy_name";
+            case 2 -> "power_year";
+            case 3 -> "power_month";
+            case 4 -> "power_num";
+            default -> "col_" + column;
+        };
+    }
+
+    private static Object value(Random random, int row, int column) {
+        return switch (column % 5) {
+            case 0 -> ORGS[random.nextInt(ORGS.length)];
+            case 1 -> INDUSTRIES[random.nextInt(INDUSTRIES.length)];
+            case 2 -> 2020 + random.nextInt(5);
+            case 3 -> String.format("%02d", 1 + row % 12);
+            default -> random.nextDouble() * 10000;
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package cn.daydayup.dev.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName JsonRpcBenchmark
+ * @Description 工具调用的JSON-RPC负载：解析 tools/call 请求，序列化带查询结果的响应（SSE传输使用Jackson）
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 19:40
+ * @Version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonRpcBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int rows;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private String request;
+
+    private McpSchema.JSONRPCResponse response;
+
+    @Setup
+    public void setUp() throws IOException {
+        request = objectMapper.writeValueAsString(new McpSchema.JSONRPCRequest("2.0", "tools/call", 1,
+                Map.of("name", "executeMysqlQuery",
+                        "arguments", Map.of("sqlQuery", Fixtures.multiStatementSql(1)))));
+        String queryResult = com.alibaba.fastjson2.JSON.toJSONString(Fixtures.table(rows, 8));
+        McpSchema.CallToolResult result = new McpSchema.CallToolResult(
+                List.of(new McpSchema.TextContent("查询结果: " + queryResult)), false);
+        response = new McpSchema.JSONRPCResponse("2.0", 1, result, null);
+    }
+
+    @Benchmark
+    public McpSchema.JSONRPCMessage deserializeRequest() throws IOException {
+        return McpSchema.deserializeJsonRpcMessage(objectMapper, request);
+    }
+
+    @Benchmark
+    public String serializeResponse() throws IOException {
+        return objectMapper.writeValueAsString(response);
+    }
+}
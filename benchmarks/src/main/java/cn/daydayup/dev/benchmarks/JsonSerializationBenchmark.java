@@ -0,0 +1,58 @@
+package cn.daydayup.dev.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName JsonSerializationBenchmark
+ * @Description 查询结果序列化：mcp-server-plus 使用 fastjson，mcp-server 使用 fastjson2
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 19:40
+ * @Version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int rows;
+
+    @Param({"5", "50", "200"})
+    public int columns;
+
+    /**
+     * 与 execute_mysql_query 和智能体 convert 的输出结构一致：每行一个 列名 -> 值 的Map
+     */
+    private List<Map<String, Object>> records;
+
+    @Setup
+    public void setUp() {
+        records = Fixtures.records(rows, columns);
+    }
+
+    @Benchmark
+    public String fastjson() {
+        return com.alibaba.fastjson.JSON.toJSONString(records);
+    }
+
+    @Benchmark
+    public String fastjson2() {
+        return com.alibaba.fastjson2.JSON.toJSONString(records);
+    }
+}
@@ -0,0 +1,89 @@
+package cn.daydayup.dev.benchmarks;
+
+import cn.daydayup.dev.mcpserverplus.security.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName JwtBenchmark
+ * @Description 每个MCP请求都要经过的JWT验证：每次新建解析器、共享解析器、命中已验证令牌缓存
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 19:40
+ * @Version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final String SECRET =
+            "mySuperSecretKeyForMCPServerWhichIsDefinitelyLongEnoughToMeetTheRequirementsOfHMACSHAAlgorithms2025";
+
+    private SecretKey key;
+
+    private JwtParser sharedParser;
+
+    private JwtUtils jwtUtils;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        sharedParser = Jwts.parserBuilder().setSigningKey(key).build();
+        jwtUtils = new JwtUtils(10000);
+        jwtUtils.setJwtSecret(SECRET);
+        Date now = new Date();
+        token = Jwts.builder()
+                .setSubject("admin")
+                .claim("role", "ADMIN")
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(key)
+                .compact();
+    }
+
+    /**
+     * 原实现：每次验证都新建解析器并验证签名
+     */
+    @Benchmark
+    public Claims parseWithNewParser() {
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * 共享解析器，仍然每次验证签名
+     */
+    @Benchmark
+    public Claims parseWithSharedParser() {
+        return sharedParser.parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * JwtAuthenticationFilter 当前的路径：同一令牌只验证一次签名
+     */
+    @Benchmark
+    public Optional<Claims> verifyCached() {
+        return jwtUtils.verify(token);
+    }
+}
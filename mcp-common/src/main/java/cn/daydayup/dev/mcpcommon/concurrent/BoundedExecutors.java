@@ -0,0 +1,71 @@
+package cn.daydayup.dev.mcpcommon.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @ClassName BoundedExecutors
+ * @Description 有界线程池工厂，JDK支持虚拟线程时使用虚拟线程，否则使用平台线程
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 13:40
+ * @Version 1.0
+ */
+@Slf4j
+public final class BoundedExecutors {
+
+    private BoundedExecutors() {
+    }
+
+    /**
+     * 创建有界线程池，并发数和排队数都有上限，超出时拒绝提交
+     * @param name 线程名前缀
+     * @param maxThreads 最大并发数
+     * @param queueCapacity 排队任务数上限
+     * @return 线程池
+     */
+    public static ThreadPoolExecutor newBoundedExecutor(String name, int maxThreads, int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                threadFactory(name),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 虚拟线程工厂（JDK 21+），不支持时退回到守护平台线程
+     * @param name 线程名前缀
+     * @return 线程工厂
+     */
+    public static ThreadFactory threadFactory(String name) {
+        ThreadFactory virtual = virtualThreadFactory(name);
+        if (virtual != null) {
+            return virtual;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static ThreadFactory virtualThreadFactory(String name) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method nameMethod = builderClass.getMethod("name", String.class, long.class);
+            builder = nameMethod.invoke(builder, name + "-", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("当前JDK不支持虚拟线程，{}使用平台线程", name);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package cn.daydayup.dev.mcpcommon.config;
+
+import cn.daydayup.dev.mcpcommon.concurrent.BoundedExecutors;
+import cn.daydayup.dev.mcpcommon.datasource.DataSourceProperties;
+import cn.daydayup.dev.mcpcommon.datasource.DataSourceRegistry;
+import cn.daydayup.dev.mcpcommon.datasource.DataSourceRouter;
+import cn.daydayup.dev.mcpcommon.datasource.PoolProperties;
+import cn.daydayup.dev.mcpcommon.metrics.McpMetrics;
+import cn.daydayup.dev.mcpcommon.query.QueryGovernor;
+import cn.daydayup.dev.mcpcommon.query.QueryProperties;
+import cn.daydayup.dev.mcpcommon.query.QueryResultCache;
+import cn.daydayup.dev.mcpcommon.query.StreamingQueryExecutor;
+import cn.daydayup.dev.mcpcommon.schema.SchemaCacheProperties;
+import cn.daydayup.dev.mcpcommon.schema.SchemaCatalog;
+import cn.daydayup.dev.mcpcommon.server.McpServerProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * @ClassName McpCommonAutoConfiguration
+ * @Description MCP服务公共组件自动配置
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 9:30
+ * @Version 1.0
+ */
+@AutoConfiguration
+@EnableConfigurationProperties({PoolProperties.class, DataSourceProperties.class, QueryProperties.class,
+        SchemaCacheProperties.class, McpServerProperties.class})
+public class McpCommonAutoConfiguration {
+
+    /**
+     * 引入Actuator时使用其指标注册表，否则使用全局注册表
+     */
+    @Bean
+    public McpMetrics mcpMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new McpMetrics(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    public DataSourceRegistry dataSourceRegistry(PoolProperties poolProperties, McpMetrics mcpMetrics) {
+        return new DataSourceRegistry(poolProperties, mcpMetrics.registry());
+    }
+
+    /**
+     * 启动时为每个配置的数据源构建独立的连接池
+     */
+    @Bean
+    public DataSourceRouter dataSourceRouter(DataSourceRegistry dataSourceRegistry,
+                                             DataSourceProperties dataSourceProperties,
+                                             PoolProperties poolProperties) {
+        return new DataSourceRouter(dataSourceRegistry, dataSourceProperties, poolProperties);
+    }
+
+    @Bean
+    public QueryGovernor queryGovernor(QueryProperties queryProperties, McpMetrics mcpMetrics) {
+        return new QueryGovernor(queryProperties, mcpMetrics);
+    }
+
+    @Bean
+    public StreamingQueryExecutor streamingQueryExecutor(QueryProperties queryProperties, McpMetrics mcpMetrics,
+                                                         QueryGovernor queryGovernor) {
+        return new StreamingQueryExecutor(queryProperties, mcpMetrics, queryGovernor);
+    }
+
+    @Bean
+    public QueryResultCache queryResultCache(QueryProperties queryProperties) {
+        return new QueryResultCache(queryProperties);
+    }
+
+    @Bean
+    public SchemaCatalog schemaCatalog(SchemaCacheProperties schemaCacheProperties, QueryGovernor queryGovernor) {
+        return new SchemaCatalog(schemaCacheProperties, queryGovernor);
+    }
+
+    /**
+     * 异步模式下执行阻塞工具调用的调度器，销毁时一并关闭底层线程池
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler mcpToolScheduler(McpServerProperties serverProperties) {
+        return Schedulers.fromExecutorService(BoundedExecutors.newBoundedExecutor("mcp-tool",
+                serverProperties.getExecutorThreads(), serverProperties.getExecutorQueueCapacity()), "mcp-tool");
+    }
+}
@@ -0,0 +1,94 @@
+package cn.daydayup.dev.mcpcommon.datasource;
+
+import com.alibaba.fastjson2.JSONObject;
+import lombok.Data;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @ClassName DataSourceProperties
+ * @Description 命名数据源配置，工具调用通过datasource参数选择数据源
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 21:00
+ * @Version 1.0
+ */
+@Data
+@ConfigurationProperties(prefix = "mcp.datasource")
+public class DataSourceProperties {
+
+    /**
+     * 调用未指定datasource参数时使用的数据源，为空时使用第一个
+     */
+    private String defaultName;
+
+    /**
+     * 数据源名称 -> 连接信息
+     */
+    private Map<String, Source> sources = new LinkedHashMap<>();
+
+    @Data
+    public static class Source {
+
+        /**
+         * 数据源说明，会出现在工具描述中，帮助大模型选择数据源
+         */
+        private String description;
+
+        /**
+         * 数据库类型：mysql、oracle、postgresql
+         */
+        private String type;
+
+        private String host;
+
+        private String port;
+
+        private String schema;
+
+        private String space;
+
+        private String version;
+
+        private String username;
+
+        private String password;
+
+        private String driverClassName;
+
+        private String jdbcUrl;
+
+        /**
+         * 该数据源的最大连接数，为空时使用 mcp.datasource.pool.max-pool-size
+         */
+        private Integer maxPoolSize;
+
+        /**
+         * 该数据源同时执行的查询数，为空时使用 mcp.query.governor.max-concurrent-queries
+         */
+        private Integer maxConcurrentQueries;
+
+        /**
+         * 转换为 connector-core 使用的连接配置（JSON）
+         */
+        public String toConfig() {
+            JSONObject config = new JSONObject();
+            config.put("username", username);
+            config.put("password", password);
+            config.put("type", type);
+            config.put("host", host);
+            config.put("port", port);
+            config.put("schema", schema);
+            if (StringUtils.isNotEmpty(space)) {
+                config.put("space", space);
+            }
+            if (version != null) {
+                config.put("version", version);
+            }
+            config.put("driver-class-name", driverClassName);
+            config.put("jdbcUrl", jdbcUrl);
+            return config.toJSONString();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package cn.daydayup.dev.mcpcommon.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.DigestUtils;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @ClassName DataSourceRegistry
+ * @Description 数据源注册中心，按配置只构建一次带连接池的数据源
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 9:30
+ * @Version 1.0
+ */
+@Slf4j
+public class DataSourceRegistry implements DisposableBean {
+
+    private final Map<String, PooledDataSource> dataSources = new ConcurrentHashMap<>();
+    private final PoolProperties poolProperties;
+
+    /**
+     * 连接池指标（活跃连接数、等待获取连接的耗时等）注册到该注册表
+     */
+    private final MeterRegistry meterRegistry;
+
+    public DataSourceRegistry(PoolProperties poolProperties, MeterRegistry meterRegistry) {
+        this.poolProperties = poolProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 注册数据源，使用配置内容的摘要作为数据源ID
+     * @param config 数据库连接配置（JSON）
+     * @return 带连接池的数据源
+     */
+    public PooledDataSource register(String config) {
+        return register(configId(config), config);
+    }
+
+    /**
+     * 注册数据源，同一个ID只会构建一次
+     * @param id 数据源ID
+     * @param config 数据库连接配置（JSON）
+     * @return 带连接池的数据源
+     */
+    public PooledDataSource register(String id, String config) {
+        return register(id, config, poolProperties, 0);
+    }
+
+    /**
+     * 注册数据源，使用单独的连接池配置和并发查询数，同一个ID只会构建一次
+     * @param id 数据源ID
+     * @param config 数据库连接配置（JSON）
+     * @param pool 连接池配置
+     * @param maxConcurrentQueries 同时执行的查询数，0表示使用默认值
+     * @return 带连接池的数据源
+     */
+    public PooledDataSource register(String id, String config, PoolProperties pool, int maxConcurrentQueries) {
+        return dataSources.computeIfAbsent(id, key -> {
+            PooledDataSource dataSource = new PooledDataSource(key, config, pool, meterRegistry, maxConcurrentQueries);
+            dataSource.warmUp();
+            log.info("数据源[{}]已注册，类型: {}", key, dataSource.getType());
+            return dataSource;
+        });
+    }
+
+    /**
+     * 获取已注册的数据源
+     * @param id 数据源ID
+     * @return 带连接池的数据源
+     */
+    public PooledDataSource get(String id) {
+        PooledDataSource dataSource = dataSources.get(id);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("数据源不存在: " + id);
+        }
+        return dataSource;
+    }
+
+    /**
+     * 所有数据源的连接池状态
+     * @return 数据源ID -> 连接池统计信息
+     */
+    public Map<String, PoolStats> stats() {
+        Map<String, PoolStats> stats = new LinkedHashMap<>();
+        dataSources.forEach((id, dataSource) -> stats.put(id, dataSource.stats()));
+        return stats;
+    }
+
+    public static String configId(String config) {
+        return DigestUtils.md5DigestAsHex(config.trim().getBytes(StandardCharsets.UTF_8)).substring(0, 12);
+    }
+
+    @Override
+    public void destroy() {
+        dataSources.values().forEach(PooledDataSource::close);
+        dataSources.clear();
+    }
+}
@@ -0,0 +1,110 @@
+package cn.daydayup.dev.mcpcommon.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @ClassName DataSourceRouter
+ * @Description 按名称路由到已配置的数据源，每个数据源使用独立的连接池和并发隔离
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 21:00
+ * @Version 1.0
+ */
+@Slf4j
+public class DataSourceRouter {
+
+    /**
+     * 工具参数中的数据源名称
+     */
+    public static final String ARGUMENT = "datasource";
+
+    private final Map<String, PooledDataSource> dataSources = new LinkedHashMap<>();
+
+    private final Map<String, String> descriptions = new LinkedHashMap<>();
+
+    private final String defaultName;
+
+    public DataSourceRouter(DataSourceRegistry registry, DataSourceProperties properties, PoolProperties poolProperties) {
+        if (properties.getSources().isEmpty()) {
+            throw new IllegalStateException("未配置数据源，请在 mcp.datasource.sources 中配置");
+        }
+        properties.getSources().forEach((name, source) -> {
+            PoolProperties pool = source.getMaxPoolSize() == null
+                    ? poolProperties : poolProperties.withMaxPoolSize(source.getMaxPoolSize());
+            int maxConcurrentQueries = source.getMaxConcurrentQueries() == null ? 0 : source.getMaxConcurrentQueries();
+            dataSources.put(name, registry.register(name, source.toConfig(), pool, maxConcurrentQueries));
+            descriptions.put(name, StringUtils.defaultString(source.getDescription(), source.getType()));
+        });
+        this.defaultName = StringUtils.isEmpty(properties.getDefaultName())
+                ? dataSources.keySet().iterator().next() : properties.getDefaultName();
+        if (!dataSources.containsKey(defaultName)) {
+            throw new IllegalStateException("默认数据源不存在: " + defaultName);
+        }
+        log.info("已配置数据源: {}，默认数据源: {}", dataSources.keySet(), defaultName);
+    }
+
+    /**
+     * 按名称获取数据源
+     * @param name 数据源名称，为空时使用默认数据源
+     * @return 带连接池的数据源
+     */
+    public PooledDataSource resolve(String name) {
+        if (StringUtils.isBlank(name)) {
+            return dataSources.get(defaultName);
+        }
+        PooledDataSource dataSource = dataSources.get(name.trim());
+        if (dataSource == null) {
+            throw new IllegalArgumentException("数据源不存在: " + name + "，可选数据源: " + dataSources.keySet());
+        }
+        return dataSource;
+    }
+
+    /**
+     * 按工具参数中的datasource获取数据源
+     */
+    public PooledDataSource resolve(Map<String, Object> arguments) {
+        return resolve((String) arguments.get(ARGUMENT));
+    }
+
+    /**
+     * 工具参数对应的数据源名称，用作指标标签，未知的名称统一记为 unknown
+     */
+    public String nameOf(Map<String, Object> arguments) {
+        Object name = arguments.get(ARGUMENT);
+        if (!(name instanceof String text) || StringUtils.isBlank(text)) {
+            return defaultName;
+        }
+        return dataSources.containsKey(text.trim()) ? text.trim() : "unknown";
+    }
+
+    public String defaultName() {
+        return defaultName;
+    }
+
+    public List<String> names() {
+        return new ArrayList<>(dataSources.keySet());
+    }
+
+    public Collection<PooledDataSource> all() {
+        return Collections.unmodifiableCollection(dataSources.values());
+    }
+
+    /**
+     * 数据源说明，用于工具描述
+     * @return 每行一个数据源：名称（类型或说明）
+     */
+    public String describe() {
+        StringBuilder builder = new StringBuilder();
+        descriptions.forEach((name, description) -> builder.append(name)
+                .append("：").append(description)
+                .append(name.equals(defaultName) ? "（默认）" : "")
+                .append('\n'));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package cn.daydayup.dev.mcpcommon.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @ClassName PoolProperties
+ * @Description 数据源连接池配置
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 9:30
+ * @Version 1.0
+ */
+@Data
+@ConfigurationProperties(prefix = "mcp.datasource.pool")
+public class PoolProperties {
+
+    /**
+     * 最小空闲连接数
+     */
+    private int minIdle = 1;
+
+    /**
+     * 最大连接数
+     */
+    private int maxPoolSize = 10;
+
+    /**
+     * 空闲连接回收时间（毫秒）
+     */
+    private long idleTimeoutMs = 600_000;
+
+    /**
+     * 获取连接的最长等待时间（毫秒）
+     */
+    private long connectionTimeoutMs = 30_000;
+
+    /**
+     * 连接最大存活时间（毫秒）
+     */
+    private long maxLifetimeMs = 1_800_000;
+
+    /**
+     * 复制一份配置，用于单个数据源覆盖最大连接数
+     * @param maxPoolSize 最大连接数
+     * @return 新的连接池配置
+     */
+    public PoolProperties withMaxPoolSize(int maxPoolSize) {
+        PoolProperties copy = new PoolProperties();
+        copy.setMinIdle(Math.min(minIdle, maxPoolSize));
+        copy.setMaxPoolSize(maxPoolSize);
+        copy.setIdleTimeoutMs(idleTimeoutMs);
+        copy.setConnectionTimeoutMs(connectionTimeoutMs);
+        copy.setMaxLifetimeMs(maxLifetimeMs);
+        return copy;
+    }
+}
@@ -0,0 +1,18 @@
+package cn.daydayup.dev.mcpcommon.datasource;
+
+/**
+ * @ClassName PoolStats
+ * @Description 连接池运行状态
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 9:30
+ * @Version 1.0
+ */
+public record PoolStats(String id,
+                        String type,
+                        int activeConnections,
+                        int idleConnections,
+                        int totalConnections,
+                        int threadsAwaitingConnection,
+                        int minIdle,
+                        int maxPoolSize) {
+}
@@ -0,0 +1,182 @@
+package cn.daydayup.dev.mcpcommon.datasource;
+
+import cn.daydayup.dev.connection.core.adapter.DatabaseAdapter;
+import cn.daydayup.dev.connection.core.database.AbstractJdbcDataSource;
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * @ClassName PooledDataSource
+ * @Description 带连接池的数据源，一个数据库配置只构建一次，供所有工具和智能体节点共享
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 9:30
+ * @Version 1.0
+ */
+@Slf4j
+public class PooledDataSource implements AutoCloseable {
+
+    private final String id;
+    private final String type;
+    private final String config;
+    private final PoolProperties poolProperties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 同时执行的查询数，0表示使用查询管控的默认值
+     */
+    private final int maxConcurrentQueries;
+
+    /**
+     * 表清单仍然走 connector-core 的方言实现，列信息由查询管控从连接池读取
+     */
+    private volatile AbstractJdbcDataSource metadataSource;
+
+    /**
+     * SQL 执行统一从连接池获取连接
+     */
+    private volatile HikariDataSource pool;
+
+    PooledDataSource(String id, String config, PoolProperties poolProperties, MeterRegistry meterRegistry,
+                     int maxConcurrentQueries) {
+        this.id = id;
+        this.config = config;
+        this.poolProperties = poolProperties;
+        this.meterRegistry = meterRegistry;
+        this.maxConcurrentQueries = maxConcurrentQueries;
+        this.type = JSON.parseObject(config).getString("type");
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getMaxConcurrentQueries() {
+        return maxConcurrentQueries;
+    }
+
+    /**
+     * 获取数据库中所有表的信息
+     * @return 表头和数据行
+     */
+    public Pair<List<String>, List<List<String>>> getAllTableInfo() {
+        return metadataSource().getAllTableInfo();
+    }
+
+    /**
+     * 从连接池获取连接，使用完毕后必须关闭以归还连接池
+     * @return 数据库连接
+     */
+    public Connection getConnection() throws SQLException {
+        return pool().getConnection();
+    }
+
+    /**
+     * 连接池状态
+     * @return 连接池统计信息
+     */
+    public PoolStats stats() {
+        HikariDataSource current = pool;
+        HikariPoolMXBean mxBean = current == null ? null : current.getHikariPoolMXBean();
+        if (mxBean == null) {
+            return new PoolStats(id, type, 0, 0, 0, 0,
+                    poolProperties.getMinIdle(), poolProperties.getMaxPoolSize());
+        }
+        return new PoolStats(id, type,
+                mxBean.getActiveConnections(),
+                mxBean.getIdleConnections(),
+                mxBean.getTotalConnections(),
+                mxBean.getThreadsAwaitingConnection(),
+                poolProperties.getMinIdle(),
+                poolProperties.getMaxPoolSize());
+    }
+
+    /**
+     * 预先构建元数据数据源和连接池，失败时在首次使用时重试
+     */
+    void warmUp() {
+        try {
+            metadataSource();
+            pool();
+        } catch (Exception e) {
+            log.error("数据源[{}]初始化失败，将在首次使用时重试: {}", id, e.getMessage());
+        }
+    }
+
+    private AbstractJdbcDataSource metadataSource() {
+        AbstractJdbcDataSource current = metadataSource;
+        if (current == null) {
+            // DatabaseAdapter 是共享单例，setConfig 和 getDataSource 必须成对串行执行
+            synchronized (DatabaseAdapter.class) {
+                current = metadataSource;
+                if (current == null) {
+                    DatabaseAdapter adapter = DatabaseAdapter.getAdapter();
+                    adapter.setConfig(config);
+                    current = (AbstractJdbcDataSource) adapter.getDataSource();
+                    metadataSource = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private HikariDataSource pool() {
+        HikariDataSource current = pool;
+        if (current == null) {
+            synchronized (this) {
+                current = pool;
+                if (current == null) {
+                    current = new HikariDataSource(buildHikariConfig());
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private HikariConfig buildHikariConfig() {
+        JSONObject json = JSON.parseObject(config);
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName("mcp-" + id);
+        hikariConfig.setJdbcUrl(json.getString("jdbcUrl"));
+        hikariConfig.setUsername(json.getString("username"));
+        hikariConfig.setPassword(json.getString("password"));
+        String driverClassName = json.getString("driver-class-name");
+        if (StringUtils.isNotBlank(driverClassName)) {
+            hikariConfig.setDriverClassName(driverClassName);
+        }
+        hikariConfig.setMinimumIdle(poolProperties.getMinIdle());
+        hikariConfig.setMaximumPoolSize(poolProperties.getMaxPoolSize());
+        hikariConfig.setIdleTimeout(poolProperties.getIdleTimeoutMs());
+        hikariConfig.setConnectionTimeout(poolProperties.getConnectionTimeoutMs());
+        hikariConfig.setMaxLifetime(poolProperties.getMaxLifetimeMs());
+        if (meterRegistry != null) {
+            // 发布 hikaricp_connections_* 指标，按连接池名称 mcp-{数据源ID} 区分
+            hikariConfig.setMetricRegistry(meterRegistry);
+        }
+        // 数据库暂时不可用时不阻止服务启动
+        hikariConfig.setInitializationFailTimeout(-1);
+        return hikariConfig;
+    }
+
+    @Override
+    public void close() {
+        HikariDataSource current = pool;
+        if (current != null) {
+            current.close();
+        }
+    }
+}
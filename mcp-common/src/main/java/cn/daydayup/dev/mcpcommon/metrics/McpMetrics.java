@@ -0,0 +1,205 @@
+package cn.daydayup.dev.mcpcommon.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.spec.McpSchema;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+/**
+ * @ClassName McpMetrics
+ * @Description 工具调用、智能体节点、JDBC查询、大模型和网络调用的耗时、错误和结果大小指标
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 19:10
+ * @Version 1.0
+ */
+public class McpMetrics {
+
+    public static final String TOOL = "mcp.tool";
+    public static final String QUERY = "mcp.query";
+    public static final String AGENT_NODE = "mcp.agent.node";
+    public static final String LLM = "mcp.llm";
+    public static final String WEB_SEARCH = "mcp.web.search";
+    public static final String WEB_PAGE = "mcp.web.page";
+
+    private final MeterRegistry registry;
+
+    public McpMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * 为工具添加耗时和错误统计，返回 isError 的调用同样记为失败
+     * @param spec 工具规范
+     * @param datasource 数据源ID，工具与数据源无关时传 none
+     * @return 带指标统计的工具规范
+     */
+    public McpServerFeatures.SyncToolSpecification tool(McpServerFeatures.SyncToolSpecification spec, String datasource) {
+        return tool(spec, arguments -> datasource);
+    }
+
+    /**
+     * 为工具添加耗时和错误统计，数据源由调用参数决定
+     * @param spec 工具规范
+     * @param datasource 根据调用参数确定数据源名称
+     * @return 带指标统计的工具规范
+     */
+    public McpServerFeatures.SyncToolSpecification tool(McpServerFeatures.SyncToolSpecification spec,
+                                                        Function<Map<String, Object>, String> datasource) {
+        return new McpServerFeatures.SyncToolSpecification(spec.tool(), (exchange, arguments) -> {
+            Tags tags = Tags.of("tool", spec.tool().name(), "datasource", datasource.apply(arguments));
+            Timer.Sample sample = Timer.start(registry);
+            String outcome = "error";
+            try {
+                McpSchema.CallToolResult result = spec.call().apply(exchange, arguments);
+                if (!Boolean.TRUE.equals(result.isError())) {
+                    outcome = "success";
+                } else {
+                    error(TOOL, tags, "ToolError");
+                }
+                return result;
+            } catch (RuntimeException e) {
+                error(TOOL, tags, e.getClass().getSimpleName());
+                throw e;
+            } finally {
+                sample.stop(timer(TOOL, tags.and("outcome", outcome)));
+            }
+        });
+    }
+
+    /**
+     * 记录一次调用的耗时，抛出异常时同时累加错误计数
+     * @param name 指标名
+     * @param tags 标签
+     * @param call 调用
+     * @return 调用结果
+     */
+    public <T> T record(String name, Tags tags, Callable<T> call) throws Exception {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        try {
+            T result = call.call();
+            outcome = "success";
+            return result;
+        } catch (Exception e) {
+            error(name, tags, e.getClass().getSimpleName());
+            throw e;
+        } finally {
+            sample.stop(timer(name, tags.and("outcome", outcome)));
+        }
+    }
+
+    /**
+     * 记录一次调用的耗时，用于不抛出受检异常的调用
+     */
+    public <T> T recordUnchecked(String name, Tags tags, Callable<T> call) {
+        try {
+            return record(name, tags, call);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 开始计时，用于一次调用有多种结果（如缓存命中、重新校验）的场景
+     */
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * 结束计时
+     * @param sample 计时
+     * @param name 指标名
+     * @param tags 标签，通常包含 outcome
+     */
+    public void stop(Timer.Sample sample, String name, Tags tags) {
+        sample.stop(timer(name, tags));
+    }
+
+    /**
+     * 累加错误计数
+     * @param name 指标名
+     * @param tags 标签
+     * @param exception 异常类型或错误原因
+     */
+    public void error(String name, Tags tags, String exception) {
+        Counter.builder(name + ".errors")
+                .tags(tags.and("exception", exception))
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 记录查询结果的行数和字节数
+     * @param name 指标名
+     * @param tags 标签
+     * @param rows 行数
+     * @param bytes 字节数
+     * @param truncated 是否被截断
+     */
+    public void result(String name, Tags tags, long rows, long bytes, boolean truncated) {
+        DistributionSummary.builder(name + ".result.rows")
+                .baseUnit("rows")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(rows);
+        DistributionSummary.builder(name + ".result.bytes")
+                .baseUnit("bytes")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(bytes);
+        if (truncated) {
+            Counter.builder(name + ".truncated")
+                    .tags(tags)
+                    .register(registry)
+                    .increment();
+        }
+    }
+
+    /**
+     * 记录数量分布，如一次问答中生成SQL的次数
+     * @param name 指标名
+     * @param tags 标签
+     * @param amount 数量
+     */
+    public void summary(String name, Tags tags, double amount) {
+        DistributionSummary.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(amount);
+    }
+
+    /**
+     * 累加计数
+     * @param name 指标名
+     * @param tags 标签
+     */
+    public void count(String name, Tags tags) {
+        Counter.builder(name)
+                .tags(tags)
+                .register(registry)
+                .increment();
+    }
+
+    private Timer timer(String name, Tags tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
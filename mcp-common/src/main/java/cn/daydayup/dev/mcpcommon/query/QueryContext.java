@@ -0,0 +1,186 @@
+package cn.daydayup.dev.mcpcommon.query;
+
+import lombok.extern.slf4j.Slf4j;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * @ClassName QueryContext
+ * @Description 一次工具调用的查询上下文：截止时间和执行中的语句，调用超时或客户端断开时取消所有语句
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 20:10
+ * @Version 1.0
+ */
+@Slf4j
+public final class QueryContext {
+
+    private static final ThreadLocal<QueryContext> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 截止时间（System.nanoTime），没有截止时间时为 Long.MAX_VALUE
+     */
+    private final long deadline;
+
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 并行任务的子上下文，本上下文取消时一并取消
+     */
+    private final Set<QueryContext> children = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean cancelled;
+
+    private QueryContext(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * 创建查询上下文
+     * @param timeout 调用的超时时间，为null时不限制
+     * @return 查询上下文
+     */
+    public static QueryContext withTimeout(Duration timeout) {
+        if (timeout == null || timeout.isZero() || timeout.isNegative()) {
+            return new QueryContext(Long.MAX_VALUE);
+        }
+        return new QueryContext(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * 为并行任务创建子上下文：截止时间不晚于当前线程的上下文，当前上下文取消时一并取消；
+     * 单独取消子上下文不影响当前上下文
+     * @param timeout 子任务的超时时间，为null时与当前上下文一致；为零或负数时表示耗时预算已用完，子上下文直接超时
+     * @return 子上下文
+     */
+    public static QueryContext fork(Duration timeout) {
+        QueryContext child = timeout == null
+                ? new QueryContext(Long.MAX_VALUE)
+                : new QueryContext(System.nanoTime() + Math.max(0, timeout.toNanos()));
+        QueryContext parent = CURRENT.get();
+        if (parent == null) {
+            return child;
+        }
+        if (child.deadline == Long.MAX_VALUE
+                || (parent.deadline != Long.MAX_VALUE && parent.deadline - child.deadline < 0)) {
+            child = new QueryContext(parent.deadline);
+        }
+        parent.children.add(child);
+        if (parent.cancelled) {
+            child.cancel();
+        }
+        return child;
+    }
+
+    /**
+     * 当前线程绑定的查询上下文
+     * @return 查询上下文，未绑定时为null
+     */
+    public static QueryContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 当前调用已超时或已取消时直接失败，避免继续调用大模型或数据库
+     */
+    public static void checkActive() {
+        QueryContext context = CURRENT.get();
+        if (context != null && !context.isActive()) {
+            throw new IllegalStateException(context.cancelled ? "调用已取消" : "调用已超时");
+        }
+    }
+
+    /**
+     * 在当前线程绑定上下文后执行
+     */
+    public <T> T call(Callable<T> call) throws Exception {
+        QueryContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.call();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 将当前线程的上下文传递到其他线程执行的任务中
+     * @param task 任务
+     * @return 绑定了当前上下文的任务
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        QueryContext context = CURRENT.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            try {
+                return context.call(task::get);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        };
+    }
+
+    /**
+     * 取消上下文中所有执行中的语句，之后的查询直接失败
+     */
+    public void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        children.forEach(QueryContext::cancel);
+        if (!statements.isEmpty()) {
+            statements.forEach(QueryContext::cancel);
+            log.info("查询上下文已取消，取消执行中的语句{}条", statements.size());
+        }
+    }
+
+    public boolean isActive() {
+        return !cancelled && remainingNanos() > 0;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 距截止时间的剩余时间
+     */
+    public long remainingNanos() {
+        return deadline == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - System.nanoTime();
+    }
+
+    void register(Statement statement) throws SQLException {
+        statements.add(statement);
+        if (!isActive()) {
+            // 注册前已被取消或已超时
+            statements.remove(statement);
+            throw cancelled ? new SQLException("查询已取消") : new SQLTimeoutException("调用已超时");
+        }
+    }
+
+    void unregister(Statement statement) {
+        statements.remove(statement);
+    }
+
+    private static void cancel(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            log.warn("取消语句失败: {}", e.getMessage());
+        }
+    }
+}
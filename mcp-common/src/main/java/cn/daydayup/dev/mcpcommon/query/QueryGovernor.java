@@ -0,0 +1,296 @@
+package cn.daydayup.dev.mcpcommon.query;
+
+import cn.daydayup.dev.mcpcommon.datasource.PooledDataSource;
+import cn.daydayup.dev.mcpcommon.metrics.McpMetrics;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.tuple.Pair;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName QueryGovernor
+ * @Description 查询管控：所有SQL执行路径统一限制每个数据源的并发数、排队时间、语句超时和返回行数，
+ * 并在调用超时或取消时取消执行中的语句
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 20:10
+ * @Version 1.0
+ */
+@Slf4j
+public class QueryGovernor {
+
+    /**
+     * 列信息的表头，取自 DatabaseMetaData.getColumns 的同名列
+     */
+    private static final List<String> COLUMN_HEADERS = List.of("COLUMN_NAME", "TYPE_NAME", "COLUMN_SIZE",
+            "IS_NULLABLE", "REMARKS");
+
+    private final QueryProperties properties;
+
+    private final McpMetrics metrics;
+
+    /**
+     * 数据源ID -> 并发许可，公平模式下按到达顺序排队；每个数据源独立限流，慢数据源不会占用其他数据源的许可
+     */
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public QueryGovernor(QueryProperties properties, McpMetrics metrics) {
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 在并发许可内执行语句
+     * @param dataSource 数据源
+     * @param maxRows 语句最多返回的行数
+     * @param callback 使用语句执行查询
+     * @return 查询结果
+     */
+    public <T> T execute(PooledDataSource dataSource, int maxRows, StatementCallback<T> callback) throws SQLException {
+        QueryContext context = QueryContext.current();
+        Tags tags = Tags.of("datasource", dataSource.getId());
+        Semaphore semaphore = bulkhead(dataSource).semaphore();
+        acquire(semaphore, context, dataSource.getId(), tags);
+        try (Connection connection = dataSource.getConnection()) {
+            boolean postgresql = "postgresql".equalsIgnoreCase(dataSource.getType());
+            if (postgresql) {
+                // PostgreSQL 只有在事务内才会按 fetchSize 分批拉取
+                connection.setAutoCommit(false);
+            }
+            try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // MySQL 驱动只有 Integer.MIN_VALUE 才会逐行流式读取
+                statement.setFetchSize("mysql".equalsIgnoreCase(dataSource.getType()) ? Integer.MIN_VALUE : properties.getFetchSize());
+                statement.setMaxRows(maxRows);
+                statement.setQueryTimeout(timeoutSeconds(context));
+                if (context != null) {
+                    context.register(statement);
+                }
+                try {
+                    return callback.execute(statement);
+                } catch (SQLException e) {
+                    if (context != null && context.isCancelled()) {
+                        metrics.count(McpMetrics.QUERY + ".cancelled", tags);
+                        throw new SQLException("查询已取消", e);
+                    }
+                    if (e instanceof SQLTimeoutException) {
+                        metrics.count(McpMetrics.QUERY + ".timeouts", tags);
+                    }
+                    throw e;
+                } finally {
+                    if (context != null) {
+                        context.unregister(statement);
+                    }
+                }
+            } finally {
+                if (postgresql) {
+                    connection.rollback();
+                }
+            }
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    /**
+     * 执行查询并读取全部结果，行数不超过配置的上限
+     * @param dataSource 数据源
+     * @param sql 查询语句
+     * @return 表头和数据行
+     */
+    public Pair<List<String>, List<List<String>>> query(PooledDataSource dataSource, String sql) throws SQLException {
+        return query(dataSource, sql, properties.getMaxRows());
+    }
+
+    /**
+     * 执行查询并读取结果，由驱动限制返回的行数，SQL中无需使用LIMIT等方言语法；
+     * 结果超过配置的字节数上限时停止读取，避免大字段（LONGTEXT、CLOB）撑满内存
+     * @param dataSource 数据源
+     * @param sql 查询语句
+     * @param maxRows 最多返回的行数
+     * @return 表头和数据行
+     */
+    public Pair<List<String>, List<List<String>>> query(PooledDataSource dataSource, String sql, int maxRows)
+            throws SQLException {
+        long maxBytes = properties.getMaxBytes();
+        return execute(dataSource, maxRows, statement -> {
+            try (ResultSet resultSet = statement.executeQuery(sql)) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                int columnCount = metaData.getColumnCount();
+                List<String> headers = new ArrayList<>(columnCount);
+                for (int i = 1; i <= columnCount; i++) {
+                    headers.add(metaData.getColumnLabel(i));
+                }
+                List<List<String>> rows = new ArrayList<>();
+                long bytes = 0;
+                while (resultSet.next()) {
+                    List<String> row = new ArrayList<>(columnCount);
+                    for (int i = 1; i <= columnCount; i++) {
+                        String value = resultSet.getString(i);
+                        bytes += value == null ? 0 : ResultWriter.utf8Length(value, 0, value.length());
+                        row.add(value);
+                    }
+                    if (bytes > maxBytes) {
+                        log.warn("数据源[{}]查询结果超过{}字节，只返回前{}行", dataSource.getId(), maxBytes, rows.size());
+                        break;
+                    }
+                    rows.add(row);
+                }
+                return Pair.of(headers, rows);
+            }
+        });
+    }
+
+    /**
+     * 在并发许可内从连接池读取表的列信息，网络超时取语句超时和调用剩余时间中较小的一个
+     * @param dataSource 数据源
+     * @param tableName 表名，可带 schema 前缀
+     * @return 表头（列名、类型、长度、可空、注释）和数据行
+     */
+    public Pair<List<String>, List<List<String>>> columns(PooledDataSource dataSource, String tableName)
+            throws SQLException {
+        QueryContext context = QueryContext.current();
+        Tags tags = Tags.of("datasource", dataSource.getId());
+        Semaphore semaphore = bulkhead(dataSource).semaphore();
+        acquire(semaphore, context, dataSource.getId(), tags);
+        try (Connection connection = dataSource.getConnection()) {
+            // 元数据查询没有可取消的语句，由网络超时兜底；连接归还连接池时恢复原超时
+            connection.setNetworkTimeout(Runnable::run, (int) TimeUnit.SECONDS.toMillis(timeoutSeconds(context)));
+            DatabaseMetaData metaData = connection.getMetaData();
+            // MySQL 的 db.table 前缀是 catalog（数据库），其他数据库的前缀是 schema
+            boolean mysql = "mysql".equalsIgnoreCase(dataSource.getType());
+            int dot = tableName.lastIndexOf('.');
+            String prefix = dot > 0 ? tableName.substring(0, dot) : null;
+            String table = dot > 0 ? tableName.substring(dot + 1) : tableName;
+            String catalog = mysql && prefix != null ? prefix : connection.getCatalog();
+            String schema = mysql ? null : prefix != null ? prefix : connection.getSchema();
+            String escape = metaData.getSearchStringEscape();
+            List<List<String>> rows = columns(metaData, catalog, pattern(schema, escape), pattern(table, escape));
+            if (rows.isEmpty() && metaData.storesUpperCaseIdentifiers()) {
+                rows = columns(metaData, catalog, pattern(upper(schema), escape), pattern(upper(table), escape));
+            } else if (rows.isEmpty() && metaData.storesLowerCaseIdentifiers()) {
+                rows = columns(metaData, catalog, pattern(lower(schema), escape), pattern(lower(table), escape));
+            }
+            return Pair.of(COLUMN_HEADERS, rows);
+        } catch (SQLTimeoutException e) {
+            metrics.count(McpMetrics.QUERY + ".timeouts", tags);
+            throw e;
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    /**
+     * 转义 getColumns 的 LIKE 模式中的 _ 和 %，如 tb_dlyc_area_hy_month 中的 _ 不能作为通配符
+     */
+    static String pattern(String name, String escape) {
+        if (name == null || escape == null || escape.isEmpty()) {
+            return name;
+        }
+        return name.replace(escape, escape + escape).replace("_", escape + "_").replace("%", escape + "%");
+    }
+
+    private static String upper(String name) {
+        return name == null ? null : name.toUpperCase(Locale.ROOT);
+    }
+
+    private static String lower(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+
+    private static List<List<String>> columns(DatabaseMetaData metaData, String catalog, String schema, String table)
+            throws SQLException {
+        List<List<String>> rows = new ArrayList<>();
+        try (ResultSet resultSet = metaData.getColumns(catalog, schema, table, null)) {
+            while (resultSet.next()) {
+                List<String> row = new ArrayList<>(COLUMN_HEADERS.size());
+                for (String header : COLUMN_HEADERS) {
+                    row.add(resultSet.getString(header));
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 各数据源的并发情况
+     * @return 数据源ID -> 执行中和排队中的查询数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        bulkheads.forEach((id, bulkhead) -> {
+            Map<String, Object> stat = new LinkedHashMap<>();
+            stat.put("running", bulkhead.limit() - bulkhead.semaphore().availablePermits());
+            stat.put("queued", bulkhead.semaphore().getQueueLength());
+            stat.put("maxConcurrent", bulkhead.limit());
+            stats.put(id, stat);
+        });
+        return stats;
+    }
+
+    private Bulkhead bulkhead(PooledDataSource dataSource) {
+        return bulkheads.computeIfAbsent(dataSource.getId(), id -> {
+            int limit = dataSource.getMaxConcurrentQueries() > 0
+                    ? dataSource.getMaxConcurrentQueries() : properties.getGovernor().getMaxConcurrentQueries();
+            return new Bulkhead(new Semaphore(limit, true), limit);
+        });
+    }
+
+    private void acquire(Semaphore semaphore, QueryContext context, String dataSourceId, Tags tags) throws SQLException {
+        if (context != null && !context.isActive()) {
+            throw context.isCancelled() ? new SQLException("查询已取消") : new SQLTimeoutException("调用已超时");
+        }
+        long wait = properties.getGovernor().getQueueTimeout().toNanos();
+        if (context != null) {
+            wait = Math.min(wait, context.remainingNanos());
+        }
+        boolean acquired;
+        try {
+            acquired = semaphore.tryAcquire(Math.max(0, wait), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("等待执行查询时被中断", e);
+        }
+        if (!acquired) {
+            metrics.count(McpMetrics.QUERY + ".rejected", tags);
+            log.warn("数据源[{}]并发查询数已达上限，排队超时", dataSourceId);
+            throw new SQLTransientException("数据库繁忙，并发查询数已达上限，请稍后重试");
+        }
+    }
+
+    /**
+     * 语句超时取配置的超时时间和调用剩余时间中较小的一个，至少1秒
+     */
+    private int timeoutSeconds(QueryContext context) {
+        long timeout = properties.getGovernor().getStatementTimeout().toNanos();
+        if (context != null) {
+            timeout = Math.min(timeout, context.remainingNanos());
+        }
+        return (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(timeout + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    private record Bulkhead(Semaphore semaphore, int limit) {
+    }
+
+    /**
+     * 使用语句执行查询
+     */
+    @FunctionalInterface
+    public interface StatementCallback<T> {
+        T execute(Statement statement) throws SQLException;
+    }
+}
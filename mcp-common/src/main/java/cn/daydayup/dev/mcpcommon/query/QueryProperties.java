@@ -0,0 +1,119 @@
+package cn.daydayup.dev.mcpcommon.query;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import java.time.Duration;
+
+/**
+ * @ClassName QueryProperties
+ * @Description SQL查询执行配置
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 10:20
+ * @Version 1.0
+ */
+@Data
+@ConfigurationProperties(prefix = "mcp.query")
+public class QueryProperties {
+
+    /**
+     * 驱动每次从数据库拉取的行数
+     */
+    private int fetchSize = 500;
+
+    /**
+     * 单次查询最多返回的行数
+     */
+    private int maxRows = 1000;
+
+    /**
+     * 单次查询结果最多返回的字节数
+     */
+    private long maxBytes = 1024 * 1024;
+
+    /**
+     * 查询工具未指定格式时使用的输出格式
+     */
+    private ResultFormat defaultFormat = ResultFormat.PAIR;
+
+    /**
+     * 只读查询结果缓存
+     */
+    private ResultCache resultCache = new ResultCache();
+
+    /**
+     * 查询管控：超时、并发数和排队
+     */
+    private Governor governor = new Governor();
+
+    /**
+     * profile格式的统计摘要
+     */
+    private Profile profile = new Profile();
+
+    @Data
+    public static class ResultCache {
+
+        /**
+         * 是否启用，默认关闭
+         */
+        private boolean enabled = false;
+
+        /**
+         * 缓存条目的存活时间
+         */
+        private Duration ttl = Duration.ofMinutes(5);
+
+        /**
+         * 缓存结果的总字节数上限
+         */
+        private long maxBytes = 64L * 1024 * 1024;
+    }
+
+    @Data
+    public static class Governor {
+
+        /**
+         * 单条语句的执行超时时间，超时后由驱动取消语句
+         */
+        private Duration statementTimeout = Duration.ofSeconds(30);
+
+        /**
+         * 每个数据源同时执行的查询数上限
+         */
+        private int maxConcurrentQueries = 8;
+
+        /**
+         * 达到并发上限时排队等待的最长时间，超时后拒绝执行
+         */
+        private Duration queueTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Profile {
+
+        /**
+         * 统计摘要最多遍历的行数，不受 max-rows 和 max-bytes 限制
+         */
+        private int maxRows = 1_000_000;
+
+        /**
+         * 每列输出的高频值数量，为0时不统计高频值
+         */
+        private int topK = 5;
+
+        /**
+         * 蓄水池抽样的行数
+         */
+        private int sampleRows = 10;
+
+        /**
+         * 近似去重计数的精度，每列占用 2^precision 字节
+         */
+        private int hllPrecision = 12;
+
+        /**
+         * 高频值、最小最大值和抽样行中单个值的最大长度
+         */
+        private int maxValueLength = 64;
+    }
+}
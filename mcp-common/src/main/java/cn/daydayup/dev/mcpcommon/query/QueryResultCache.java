@@ -0,0 +1,252 @@
+package cn.daydayup.dev.mcpcommon.query;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.util.TablesNamesFinder;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+
+/**
+ * @ClassName QueryResultCache
+ * @Description 只读SQL查询结果缓存，按数据源和规范化后的SQL缓存，命中时不占用连接池
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 15:40
+ * @Version 1.0
+ */
+@Slf4j
+public class QueryResultCache {
+
+    private static final Pattern NON_READ_ONLY_PATTERN =
+            Pattern.compile("\\b(?:insert|update|delete|merge|into\\s+outfile|into\\s+dumpfile)\\b",
+                    Pattern.CASE_INSENSITIVE);
+
+    private final boolean enabled;
+
+    private final Cache<CacheKey, StreamingResult> results;
+
+    /**
+     * 数据源ID + 表名 -> 引用了该表的缓存条目，用于按表失效
+     */
+    private final Map<String, Set<CacheKey>> tableIndex = new ConcurrentHashMap<>();
+
+    public QueryResultCache(QueryProperties properties) {
+        this(properties, Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    QueryResultCache(QueryProperties properties, Ticker ticker, Executor executor) {
+        QueryProperties.ResultCache config = properties.getResultCache();
+        this.enabled = config.isEnabled();
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(config.getTtl())
+                .maximumWeight(config.getMaxBytes())
+                .weigher((CacheKey key, StreamingResult value) -> (int) Math.min(Integer.MAX_VALUE, value.bytes()))
+                .ticker(ticker)
+                .executor(executor)
+                // 移除通知是异步的：过期条目被同一个key的新结果覆盖后才收到通知时，不能删除新结果的索引
+                .removalListener((CacheKey key, StreamingResult value, RemovalCause cause) -> {
+                    if (key != null && cause != RemovalCause.REPLACED) {
+                        unindexIfAbsent(key);
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查询缓存结果
+     * @param dataSourceId 数据源ID
+     * @param sql 查询语句
+     * @param variant 结果形式（输出格式、行数限制等），不同形式分别缓存
+     * @return 缓存的结果
+     */
+    public Optional<StreamingResult> get(String dataSourceId, String sql, String variant) {
+        if (!enabled || !isReadOnly(sql)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(results.getIfPresent(new CacheKey(dataSourceId, normalize(sql), variant)));
+    }
+
+    /**
+     * 缓存查询结果，非只读语句不会被缓存
+     * @param dataSourceId 数据源ID
+     * @param sql 查询语句
+     * @param variant 结果形式
+     * @param result 查询结果
+     */
+    public void put(String dataSourceId, String sql, String variant, StreamingResult result) {
+        if (!enabled || !isReadOnly(sql)) {
+            return;
+        }
+        String normalized = normalize(sql);
+        Set<String> tables = referencedTables(normalized);
+        if (tables.isEmpty()) {
+            // 无法解析出引用的表时无法按表失效，不缓存
+            return;
+        }
+        CacheKey key = new CacheKey(dataSourceId, normalized, variant);
+        // 建索引和写入在同一个key的compute中完成，与移除通知中的删除索引互斥
+        results.asMap().compute(key, (k, previous) -> {
+            for (String table : tables) {
+                tableIndex.compute(indexKey(dataSourceId, table), (t, keys) -> {
+                    Set<CacheKey> indexed = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+                    indexed.add(k);
+                    return indexed;
+                });
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 使引用了指定表的缓存失效
+     * @param dataSourceId 数据源ID
+     * @param table 表名
+     * @return 失效的条目数
+     */
+    public int invalidateTable(String dataSourceId, String table) {
+        Set<CacheKey> keys = tableIndex.remove(indexKey(dataSourceId, unquote(table)));
+        if (keys == null) {
+            return 0;
+        }
+        results.invalidateAll(keys);
+        log.info("数据源[{}]表[{}]的查询缓存已失效: {}条", dataSourceId, table, keys.size());
+        return keys.size();
+    }
+
+    /**
+     * 清空所有缓存
+     */
+    public void invalidateAll() {
+        results.invalidateAll();
+        tableIndex.clear();
+    }
+
+    /**
+     * 缓存统计
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        CacheStats stats = results.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("requests", stats.requestCount());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("size", results.estimatedSize());
+        result.put("weightedBytes", results.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L));
+        return result;
+    }
+
+    /**
+     * 只缓存 SELECT/WITH 查询
+     */
+    static boolean isReadOnly(String sql) {
+        if (sql == null) {
+            return false;
+        }
+        String head = sql.stripLeading().toLowerCase(Locale.ROOT);
+        return (head.startsWith("select") || head.startsWith("with"))
+                && !NON_READ_ONLY_PATTERN.matcher(sql).find();
+    }
+
+    /**
+     * SQL规范化：去除首尾空白和末尾分号，合并字符串常量以外的连续空白
+     */
+    static String normalize(String sql) {
+        String trimmed = sql.trim();
+        while (trimmed.endsWith(";")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1).trim();
+        }
+        StringBuilder normalized = new StringBuilder(trimmed.length());
+        char quote = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < trimmed.length(); i++) {
+            char ch = trimmed.charAt(i);
+            if (quote == 0 && Character.isWhitespace(ch)) {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            if (quote == 0 && (ch == '\'' || ch == '"' || ch == '`')) {
+                quote = ch;
+            } else if (quote == ch) {
+                quote = 0;
+            }
+            normalized.append(ch);
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * 解析SQL引用的表，包括逗号连接、JOIN和子查询中的表
+     * @return 去掉库名和引号的小写表名，无法解析时为空
+     */
+    static Set<String> referencedTables(String sql) {
+        Set<String> tables = new LinkedHashSet<>();
+        try {
+            for (String table : TablesNamesFinder.findTables(sql)) {
+                String name = unquote(table);
+                if (!name.isEmpty()) {
+                    tables.add(name);
+                }
+            }
+        } catch (JSQLParserException e) {
+            log.debug("无法解析SQL引用的表: {}", e.getMessage());
+        }
+        return tables;
+    }
+
+    private static String unquote(String table) {
+        String name = table.replace("`", "").replace("\"", "");
+        int dot = name.lastIndexOf('.');
+        return (dot >= 0 ? name.substring(dot + 1) : name).toLowerCase(Locale.ROOT);
+    }
+
+    private static String indexKey(String dataSourceId, String table) {
+        return dataSourceId + ":" + table;
+    }
+
+    /**
+     * 缓存中已没有该key时删除它的索引；在compute中执行，与写入互斥
+     */
+    private void unindexIfAbsent(CacheKey key) {
+        results.asMap().compute(key, (k, current) -> {
+            if (current == null) {
+                for (String table : referencedTables(k.sql())) {
+                    tableIndex.computeIfPresent(indexKey(k.dataSourceId(), table), (t, keys) -> {
+                        keys.remove(k);
+                        return keys.isEmpty() ? null : keys;
+                    });
+                }
+            }
+            return current;
+        });
+    }
+
+    private record CacheKey(String dataSourceId, String sql, String variant) {
+    }
+}
@@ -0,0 +1,68 @@
+package cn.daydayup.dev.mcpcommon.query;
+
+import java.util.Locale;
+
+/**
+ * @ClassName ResultFormat
+ * @Description 流式查询结果的输出格式
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 16:10
+ * @Version 1.0
+ */
+public enum ResultFormat {
+
+    /**
+     * {"key":[表头],"value":[[数据行]],"rowCount":n,"rowsSeen":n,"truncated":false}
+     */
+    PAIR,
+
+    /**
+     * [{"列名":"值",...},...]，与智能体原有的结果格式一致
+     */
+    RECORDS,
+
+    /**
+     * {"columns":[表头],"data":[[第1列的值],[第2列的值]],"rowCount":n,"rowsSeen":n,"truncated":false}，每列一个数组
+     */
+    COLUMNAR,
+
+    /**
+     * 首行为表头的CSV
+     */
+    CSV,
+
+    /**
+     * Markdown表格
+     */
+    MARKDOWN,
+
+    /**
+     * 统计摘要：每列的计数、空值数、最小最大值、均值标准差、近似去重数、高频值，以及抽样行；
+     * 遍历整个结果集，不返回原始数据
+     */
+    PROFILE;
+
+    /**
+     * 缓存等场景使用的小写名称
+     */
+    public String id() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 解析输出格式，为空或无法识别时使用默认格式
+     * @param value 格式名称，不区分大小写
+     * @param defaultFormat 默认格式
+     * @return 输出格式
+     */
+    public static ResultFormat parse(String value, ResultFormat defaultFormat) {
+        if (value == null || value.isBlank()) {
+            return defaultFormat;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return defaultFormat;
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package cn.daydayup.dev.mcpcommon.query;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * @ClassName ResultWriter
+ * @Description 结果集写入器，直接从ResultSet逐行写入缓冲区，不构建每行的Map
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 18:20
+ * @Version 1.0
+ */
+abstract class ResultWriter {
+
+    protected final StringBuilder buffer;
+
+    protected final String[] labels;
+
+    protected ResultWriter(StringBuilder buffer, String[] labels) {
+        this.buffer = buffer;
+        this.labels = labels;
+    }
+
+    static ResultWriter of(ResultFormat format, StringBuilder buffer, String[] labels) {
+        return switch (format) {
+            case PAIR -> new PairWriter(buffer, labels);
+            case RECORDS -> new RecordsWriter(buffer, labels);
+            case COLUMNAR -> new ColumnarWriter(buffer, labels);
+            case CSV -> new CsvWriter(buffer, labels);
+            case MARKDOWN -> new MarkdownWriter(buffer, labels);
+            case PROFILE -> throw new IllegalArgumentException("统计摘要不按行写入，请使用ResultProfiler");
+        };
+    }
+
+    /**
+     * 写入表头
+     */
+    abstract void header();
+
+    /**
+     * 写入当前行
+     * @param resultSet 结果集
+     * @param rowIndex 行号，从0开始
+     * @return 本行写入的字节数（UTF-8）
+     */
+    abstract long row(ResultSet resultSet, int rowIndex) throws SQLException;
+
+    /**
+     * 丢弃最后写入的一行
+     */
+    abstract void discardRow();
+
+    /**
+     * 写入结尾
+     */
+    abstract void footer(int rowCount, int rowsSeen, boolean truncated);
+
+    /**
+     * 按行写入的格式，丢弃行时直接截断缓冲区
+     */
+    private abstract static class RowWriter extends ResultWriter {
+
+        private int rowStart;
+
+        RowWriter(StringBuilder buffer, String[] labels) {
+            super(buffer, labels);
+        }
+
+        @Override
+        long row(ResultSet resultSet, int rowIndex) throws SQLException {
+            rowStart = buffer.length();
+            writeRow(resultSet, rowIndex);
+            return utf8Length(buffer, rowStart, buffer.length());
+        }
+
+        @Override
+        void discardRow() {
+            buffer.setLength(rowStart);
+        }
+
+        abstract void writeRow(ResultSet resultSet, int rowIndex) throws SQLException;
+    }
+
+    /**
+     * {"key":[表头],"value":[[数据行]],"rowCount":n,"rowsSeen":n,"truncated":false}
+     */
+    private static final class PairWriter extends RowWriter {
+
+        PairWriter(StringBuilder buffer, String[] labels) {
+            super(buffer, labels);
+        }
+
+        @Override
+        void header() {
+            buffer.append("{\"key\":");
+            appendArray(buffer, labels);
+            buffer.append(",\"value\":[");
+        }
+
+        @Override
+        void writeRow(ResultSet resultSet, int rowIndex) throws SQLException {
+            if (rowIndex > 0) {
+                buffer.append(',');
+            }
+            buffer.append('[');
+            for (int i = 0; i < labels.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                appendString(buffer, resultSet.getString(i + 1));
+            }
+            buffer.append(']');
+        }
+
+        @Override
+        void footer(int rowCount, int rowsSeen, boolean truncated) {
+            buffer.append(']');
+            appendSummary(buffer, rowCount, rowsSeen, truncated);
+            buffer.append('}');
+        }
+    }
+
+    /**
+     * [{"列名":"值",...},...]
+     */
+    private static final class RecordsWriter extends RowWriter {
+
+        RecordsWriter(StringBuilder buffer, String[] labels) {
+            super(buffer, labels);
+        }
+
+        @Override
+        void header() {
+            buffer.append('[');
+        }
+
+        @Override
+        void writeRow(ResultSet resultSet, int rowIndex) throws SQLException {
+            if (rowIndex > 0) {
+                buffer.append(',');
+            }
+            buffer.append('{');
+            for (int i = 0; i < labels.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                appendString(buffer, labels[i]);
+                buffer.append(':');
+                appendString(buffer, resultSet.getString(i + 1));
+            }
+            buffer.append('}');
+        }
+
+        @Override
+        void footer(int rowCount, int rowsSeen, boolean truncated) {
+            buffer.append(']');
+        }
+    }
+
+    /**
+     * 表头一行，字段中含逗号、引号或换行时用双引号包裹，NULL输出为空
+     */
+    private static final class CsvWriter extends RowWriter {
+
+        CsvWriter(StringBuilder buffer, String[] labels) {
+            super(buffer, labels);
+        }
+
+        @Override
+        void header() {
+            for (int i = 0; i < labels.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                appendCsv(labels[i]);
+            }
+            buffer.append('\n');
+        }
+
+        @Override
+        void writeRow(ResultSet resultSet, int rowIndex) throws SQLException {
+            for (int i = 0; i < labels.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                appendCsv(resultSet.getString(i + 1));
+            }
+            buffer.append('\n');
+        }
+
+        @Override
+        void footer(int rowCount, int rowsSeen, boolean truncated) {
+        }
+
+        private void appendCsv(String value) {
+            if (value == null) {
+                return;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char ch = value.charAt(i);
+                quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+            }
+            if (!quote) {
+                buffer.append(value);
+                return;
+            }
+            buffer.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                if (ch == '"') {
+                    buffer.append('"');
+                }
+                buffer.append(ch);
+            }
+            buffer.append('"');
+        }
+    }
+
+    /**
+     * Markdown表格，单元格中的 | 转义，换行替换为 <br>
+     */
+    private static final class MarkdownWriter extends RowWriter {
+
+        MarkdownWriter(StringBuilder buffer, String[] labels) {
+            super(buffer, labels);
+        }
+
+        @Override
+        void header() {
+            buffer.append('|');
+            for (String label : labels) {
+                buffer.append(' ');
+                appendCell(label);
+                buffer.append(" |");
+            }
+            buffer.append("\n|");
+            for (int i = 0; i < labels.length; i++) {
+                buffer.append(" --- |");
+            }
+            buffer.append('\n');
+        }
+
+        @Override
+        void writeRow(ResultSet resultSet, int rowIndex) throws SQLException {
+            buffer.append('|');
+            for (int i = 0; i < labels.length; i++) {
+                buffer.append(' ');
+                appendCell(resultSet.getString(i + 1));
+                buffer.append(" |");
+            }
+            buffer.append('\n');
+        }
+
+        @Override
+        void footer(int rowCount, int rowsSeen, boolean truncated) {
+        }
+
+        private void appendCell(String value) {
+            if (value == null) {
+                return;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                switch (ch) {
+                    case '|' -> buffer.append("\\|");
+                    case '\n' -> buffer.append("<br>");
+                    case '\r' -> {
+                    }
+                    default -> buffer.append(ch);
+                }
+            }
+        }
+    }
+
+    /**
+     * {"columns":[表头],"data":[[第1列的值],[第2列的值]],"rowCount":n,"rowsSeen":n,"truncated":false}
+     * 每列一个数组，逐行追加到各列的缓冲区，结尾时再拼接
+     */
+    private static final class ColumnarWriter extends ResultWriter {
+
+        private final StringBuilder[] columns;
+
+        private final int[] rowStarts;
+
+        ColumnarWriter(StringBuilder buffer, String[] labels) {
+            super(buffer, labels);
+            this.columns = new StringBuilder[labels.length];
+            this.rowStarts = new int[labels.length];
+            for (int i = 0; i < labels.length; i++) {
+                columns[i] = new StringBuilder();
+            }
+        }
+
+        @Override
+        void header() {
+            buffer.append("{\"columns\":");
+            appendArray(buffer, labels);
+            buffer.append(",\"data\":[");
+        }
+
+        @Override
+        long row(ResultSet resultSet, int rowIndex) throws SQLException {
+            long bytes = 0;
+            for (int i = 0; i < labels.length; i++) {
+                StringBuilder column = columns[i];
+                rowStarts[i] = column.length();
+                if (rowIndex > 0) {
+                    column.append(',');
+                }
+                appendString(column, resultSet.getString(i + 1));
+                bytes += utf8Length(column, rowStarts[i], column.length());
+            }
+            return bytes;
+        }
+
+        @Override
+        void discardRow() {
+            for (int i = 0; i < labels.length; i++) {
+                columns[i].setLength(rowStarts[i]);
+            }
+        }
+
+        @Override
+        void footer(int rowCount, int rowsSeen, boolean truncated) {
+            for (int i = 0; i < labels.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                buffer.append('[').append(columns[i]).append(']');
+            }
+            buffer.append(']');
+            appendSummary(buffer, rowCount, rowsSeen, truncated);
+            buffer.append('}');
+        }
+    }
+
+    private static void appendSummary(StringBuilder buffer, int rowCount, int rowsSeen, boolean truncated) {
+        buffer.append(",\"rowCount\":").append(rowCount)
+                .append(",\"rowsSeen\":").append(rowsSeen)
+                .append(",\"truncated\":").append(truncated);
+    }
+
+    private static void appendArray(StringBuilder buffer, String[] values) {
+        buffer.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            appendString(buffer, values[i]);
+        }
+        buffer.append(']');
+    }
+
+    static void appendString(StringBuilder buffer, String value) {
+        if (value == null) {
+            buffer.append("null");
+            return;
+        }
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"' -> buffer.append("\\\"");
+                case '\\' -> buffer.append("\\\\");
+                case '\n' -> buffer.append("\\n");
+                case '\r' -> buffer.append("\\r");
+                case '\t' -> buffer.append("\\t");
+                default -> {
+                    if (ch < 0x20) {
+                        buffer.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        buffer.append(ch);
+                    }
+                }
+            }
+        }
+        buffer.append('"');
+    }
+
+    static long utf8Length(CharSequence text, int start, int end) {
+        long length = 0;
+        for (int i = start; i < end; i++) {
+            char ch = text.charAt(i);
+            if (ch < 0x80) {
+                length++;
+            } else if (ch < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(ch)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
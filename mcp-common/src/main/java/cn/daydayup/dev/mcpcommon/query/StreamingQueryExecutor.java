@@ -0,0 +1,204 @@
+package cn.daydayup.dev.mcpcommon.query;
+
+import cn.daydayup.dev.mcpcommon.datasource.PooledDataSource;
+import cn.daydayup.dev.mcpcommon.metrics.McpMetrics;
+import cn.daydayup.dev.mcpcommon.query.profile.ResultProfiler;
+import io.micrometer.core.instrument.Tags;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.DescribeStatement;
+import net.sf.jsqlparser.statement.ExplainStatement;
+import net.sf.jsqlparser.statement.ShowColumnsStatement;
+import net.sf.jsqlparser.statement.ShowStatement;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.Statements;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.show.ShowTablesStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * @ClassName StreamingQueryExecutor
+ * @Description 流式执行查询，逐行写入可复用的缓冲区，超过行数或字节数限制时提前结束
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 10:20
+ * @Version 1.0
+ */
+public class StreamingQueryExecutor {
+
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+
+    /**
+     * 线程缓冲区超过该容量时不再保留，避免一次大结果长期占用内存
+     */
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_CAPACITY));
+
+    private final QueryProperties properties;
+
+    private final McpMetrics metrics;
+
+    private final QueryGovernor governor;
+
+    private final ResultProfiler profiler;
+
+    public StreamingQueryExecutor(QueryProperties properties, McpMetrics metrics, QueryGovernor governor) {
+        this.properties = properties;
+        this.metrics = metrics;
+        this.governor = governor;
+        this.profiler = new ResultProfiler(properties.getProfile());
+    }
+
+    /**
+     * 使用配置的限制流式执行查询
+     * @param dataSource 数据源
+     * @param sql 查询语句
+     * @return 查询结果，格式为 {"key":[表头],"value":[[数据行]],"rowCount":n,"rowsSeen":n,"truncated":false}
+     */
+    public StreamingResult execute(PooledDataSource dataSource, String sql) throws SQLException {
+        return execute(dataSource, sql, properties.getMaxRows(), properties.getMaxBytes());
+    }
+
+    /**
+     * 使用配置的限制按指定格式流式执行查询
+     * @param dataSource 数据源
+     * @param sql 查询语句
+     * @param format 输出格式
+     * @return 查询结果
+     */
+    public StreamingResult execute(PooledDataSource dataSource, String sql, ResultFormat format) throws SQLException {
+        return execute(dataSource, sql, format, properties.getMaxRows(), properties.getMaxBytes());
+    }
+
+    /**
+     * 流式执行查询
+     * @param dataSource 数据源
+     * @param sql 查询语句
+     * @param maxRows 最多返回的行数
+     * @param maxBytes 最多返回的字节数
+     * @return 查询结果
+     */
+    public StreamingResult execute(PooledDataSource dataSource, String sql, int maxRows, long maxBytes) throws SQLException {
+        return execute(dataSource, sql, ResultFormat.PAIR, maxRows, maxBytes);
+    }
+
+    /**
+     * 按指定格式流式执行查询
+     * @param dataSource 数据源
+     * @param sql 查询语句
+     * @param format 输出格式
+     * @param maxRows 最多返回的行数，profile格式使用 mcp.query.profile.max-rows
+     * @param maxBytes 最多返回的字节数，超出后立即停止读取，profile格式不限制
+     * @return 查询结果
+     */
+    public StreamingResult execute(PooledDataSource dataSource, String sql, ResultFormat format,
+                                   int maxRows, long maxBytes) throws SQLException {
+        Tags tags = Tags.of("datasource", dataSource.getId(), "format", format.id());
+        try {
+            StreamingResult result = metrics.record(McpMetrics.QUERY, tags,
+                    () -> doExecute(dataSource, sql, format, maxRows, maxBytes));
+            metrics.result(McpMetrics.QUERY, tags, result.rowCount(), result.bytes(), result.truncated());
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    private StreamingResult doExecute(PooledDataSource dataSource, String sql, ResultFormat format,
+                                      int maxRows, long maxBytes) throws SQLException {
+        requireReadOnly(sql);
+        if (format == ResultFormat.PROFILE) {
+            return profile(dataSource, sql);
+        }
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        try {
+            // 多取一行用于判断是否被截断；超时、并发数和取消由查询管控统一处理
+            return governor.execute(dataSource, maxRows + 1, statement -> {
+                try (ResultSet resultSet = statement.executeQuery(sql)) {
+                    return write(resultSet, buffer, format, maxRows, maxBytes);
+                }
+            });
+        } finally {
+            if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+                BUFFER.remove();
+            }
+        }
+    }
+
+    /**
+     * 只执行查询语句：语句通过 executeQuery 执行且执行后回滚，修改数据的语句会报错或被静默丢弃，提前拒绝；
+     * 无法解析的SQL交给数据库判断
+     * @param sql SQL语句，可包含多条
+     * @throws SQLException 包含非查询语句
+     */
+    static void requireReadOnly(String sql) throws SQLException {
+        Statements statements;
+        try {
+            statements = CCJSqlParserUtil.parseStatements(sql);
+        } catch (JSQLParserException e) {
+            return;
+        }
+        for (Statement statement : statements) {
+            if (!(statement instanceof Select || statement instanceof ExplainStatement
+                    || statement instanceof DescribeStatement || statement instanceof ShowStatement
+                    || statement instanceof ShowColumnsStatement || statement instanceof ShowTablesStatement)) {
+                throw new SQLException("只支持查询语句（SELECT、SHOW、DESCRIBE、EXPLAIN），不支持修改数据或表结构的语句: "
+                        + statement.getClass().getSimpleName().toUpperCase(Locale.ROOT));
+            }
+        }
+    }
+
+    /**
+     * 遍历结果集生成统计摘要，行数上限使用 mcp.query.profile.max-rows，摘要大小与行数无关，不限制字节数
+     */
+    private StreamingResult profile(PooledDataSource dataSource, String sql) throws SQLException {
+        ResultProfiler.Profile profile = governor.execute(dataSource, properties.getProfile().getMaxRows() + 1,
+                statement -> {
+                    try (ResultSet resultSet = statement.executeQuery(sql)) {
+                        return profiler.profile(resultSet);
+                    }
+                });
+        return new StreamingResult(profile.content(), profile.rowCount(), profile.rowsSeen(),
+                ResultWriter.utf8Length(profile.content(), 0, profile.content().length()), profile.truncated());
+    }
+
+    private StreamingResult write(ResultSet resultSet, StringBuilder buffer, ResultFormat format,
+                                  int maxRows, long maxBytes) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] labels = new String[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            labels[i - 1] = metaData.getColumnLabel(i);
+        }
+        ResultWriter writer = ResultWriter.of(format, buffer, labels);
+        writer.header();
+        long bytes = ResultWriter.utf8Length(buffer, 0, buffer.length());
+        int rowCount = 0;
+        int rowsSeen = 0;
+        boolean truncated = false;
+        while (resultSet.next()) {
+            rowsSeen++;
+            if (rowCount >= maxRows) {
+                truncated = true;
+                break;
+            }
+            long rowBytes = writer.row(resultSet, rowCount);
+            if (bytes + rowBytes > maxBytes) {
+                // 丢弃超出字节限制的这一行
+                writer.discardRow();
+                truncated = true;
+                break;
+            }
+            bytes += rowBytes;
+            rowCount++;
+        }
+        writer.footer(rowCount, rowsSeen, truncated);
+        return new StreamingResult(buffer.toString(), rowCount, rowsSeen, bytes, truncated);
+    }
+}
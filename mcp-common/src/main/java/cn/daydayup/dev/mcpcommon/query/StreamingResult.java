@@ -0,0 +1,11 @@
+package cn.daydayup.dev.mcpcommon.query;
+
+/**
+ * @ClassName StreamingResult
+ * @Description 流式查询结果：序列化内容、返回行数、已读取行数、UTF-8字节数以及是否被截断
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 10:20
+ * @Version 1.0
+ */
+public record StreamingResult(String content, int rowCount, int rowsSeen, long bytes, boolean truncated) {
+}
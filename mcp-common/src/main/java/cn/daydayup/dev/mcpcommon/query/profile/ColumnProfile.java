@@ -0,0 +1,143 @@
+package cn.daydayup.dev.mcpcommon.query.profile;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @ClassName ColumnProfile
+ * @Description 单列的流式统计：计数、空值数、最小最大值，数值列的均值和标准差（Welford），近似去重数和高频值
+ * @Author ZhaoYanNing
+ * @Date 2026/10/18 16:00
+ * @Version 1.0
+ */
+final class ColumnProfile {
+
+    private final String name;
+
+    private final String type;
+
+    private final boolean numeric;
+
+    private final int maxValueLength;
+
+    private final HyperLogLog distinct;
+
+    private final SpaceSaving frequent;
+
+    private long count;
+
+    private long nulls;
+
+    private String min;
+
+    private String max;
+
+    private double numericMin = Double.POSITIVE_INFINITY;
+
+    private double numericMax = Double.NEGATIVE_INFINITY;
+
+    /**
+     * 参与均值和标准差计算的数值个数
+     */
+    private long numbers;
+
+    private double mean;
+
+    private double m2;
+
+    ColumnProfile(String name, String type, int sqlType, int hllPrecision, int counters, int maxValueLength) {
+        this.name = name;
+        this.type = type;
+        this.numeric = isNumeric(sqlType);
+        this.maxValueLength = maxValueLength;
+        this.distinct = new HyperLogLog(hllPrecision);
+        this.frequent = new SpaceSaving(counters);
+    }
+
+    void add(String value) {
+        if (value == null) {
+            nulls++;
+            return;
+        }
+        count++;
+        distinct.add(value);
+        String text = abbreviate(value, maxValueLength);
+        frequent.add(text);
+        if (numeric && addNumber(value)) {
+            return;
+        }
+        if (min == null || text.compareTo(min) < 0) {
+            min = text;
+        }
+        if (max == null || text.compareTo(max) > 0) {
+            max = text;
+        }
+    }
+
+    /**
+     * 按数值比较最小最大值，并用Welford算法累计均值和方差
+     * @return 是否为有效数值
+     */
+    private boolean addNumber(String value) {
+        double number;
+        try {
+            number = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (!Double.isFinite(number)) {
+            return false;
+        }
+        if (number < numericMin) {
+            numericMin = number;
+            min = value;
+        }
+        if (number > numericMax) {
+            numericMax = number;
+            max = value;
+        }
+        numbers++;
+        double delta = number - mean;
+        mean += delta / numbers;
+        m2 += delta * (number - mean);
+        return true;
+    }
+
+    Map<String, Object> summary(int topK) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("name", name);
+        summary.put("type", type);
+        summary.put("count", count);
+        summary.put("nulls", nulls);
+        summary.put("distinct", distinct.estimate());
+        if (min != null) {
+            summary.put("min", min);
+            summary.put("max", max);
+        }
+        if (numbers > 0) {
+            summary.put("mean", round(mean));
+            summary.put("stddev", numbers > 1 ? round(Math.sqrt(m2 / (numbers - 1))) : BigDecimal.ZERO);
+        }
+        summary.put("topValues", frequent.top(topK));
+        return summary;
+    }
+
+    static String abbreviate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength) + "...";
+    }
+
+    private static BigDecimal round(double value) {
+        return BigDecimal.valueOf(value).setScale(4, RoundingMode.HALF_UP).stripTrailingZeros();
+    }
+
+    private static boolean isNumeric(int sqlType) {
+        return switch (sqlType) {
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT,
+                    Types.FLOAT, Types.REAL, Types.DOUBLE, Types.NUMERIC, Types.DECIMAL -> true;
+            default -> false;
+        };
+    }
+}
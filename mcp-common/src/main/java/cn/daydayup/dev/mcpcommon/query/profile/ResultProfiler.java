@@ -0,0 +1,110 @@
+package cn.daydayup.dev.mcpcommon.query.profile;
+
+import cn.daydayup.dev.mcpcommon.query.QueryProperties;
+import com.alibaba.fastjson2.JSON;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @ClassName ResultProfiler
+ * @Description 一次遍历结果集生成统计摘要，内存只与列数、高频值数量和抽样行数有关，与行数无关；
+ * 大结果集交给大模型分析时使用摘要代替原始数据
+ * @Author ZhaoYanNing
+ * @Date 2026/10/18 16:00
+ * @Version 1.0
+ */
+public class ResultProfiler {
+
+    private final QueryProperties.Profile properties;
+
+    public ResultProfiler(QueryProperties.Profile properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 遍历结果集生成统计摘要
+     * @param resultSet 结果集
+     * @return 摘要及统计的行数，超过 maxRows 行时只统计前 maxRows 行并标记 truncated
+     */
+    public Profile profile(ResultSet resultSet) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] labels = new String[columnCount];
+        ColumnProfile[] columns = new ColumnProfile[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            labels[i - 1] = metaData.getColumnLabel(i);
+            columns[i - 1] = new ColumnProfile(labels[i - 1], metaData.getColumnTypeName(i), metaData.getColumnType(i),
+                    properties.getHllPrecision(), properties.getTopK() * 4, properties.getMaxValueLength());
+        }
+        int sampleSize = properties.getSampleRows();
+        List<SampledRow> sample = new ArrayList<>(sampleSize);
+        int rowCount = 0;
+        int rowsSeen = 0;
+        boolean truncated = false;
+        while (resultSet.next()) {
+            rowsSeen++;
+            if (rowCount >= properties.getMaxRows()) {
+                truncated = true;
+                break;
+            }
+            String[] values = new String[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                values[i] = resultSet.getString(i + 1);
+                columns[i].add(values[i]);
+            }
+            // 蓄水池抽样：第n行以 sampleSize/n 的概率替换已抽中的一行
+            if (sample.size() < sampleSize) {
+                sample.add(new SampledRow(rowCount, abbreviate(values)));
+            } else if (sampleSize > 0) {
+                int slot = ThreadLocalRandom.current().nextInt(rowCount + 1);
+                if (slot < sampleSize) {
+                    sample.set(slot, new SampledRow(rowCount, abbreviate(values)));
+                }
+            }
+            rowCount++;
+        }
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("rowCount", rowCount);
+        profile.put("rowsSeen", rowsSeen);
+        profile.put("truncated", truncated);
+        List<Map<String, Object>> summaries = new ArrayList<>(columnCount);
+        for (ColumnProfile column : columns) {
+            summaries.add(column.summary(properties.getTopK()));
+        }
+        profile.put("columns", summaries);
+        // 抽样行按原顺序输出
+        sample.sort(Comparator.comparingInt(SampledRow::index));
+        Map<String, Object> sampleRows = new LinkedHashMap<>();
+        sampleRows.put("columns", labels);
+        sampleRows.put("rows", sample.stream().map(SampledRow::values).toList());
+        profile.put("sample", sampleRows);
+        return new Profile(JSON.toJSONString(profile), rowCount, rowsSeen, truncated);
+    }
+
+    private String[] abbreviate(String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ColumnProfile.abbreviate(values[i], properties.getMaxValueLength());
+        }
+        return values;
+    }
+
+    private record SampledRow(int index, String[] values) {
+    }
+
+    /**
+     * 统计摘要
+     * @param content JSON格式的摘要
+     * @param rowCount 统计的行数
+     * @param rowsSeen 读取的行数
+     * @param truncated 是否只统计了部分行
+     */
+    public record Profile(String content, int rowCount, int rowsSeen, boolean truncated) {
+    }
+}
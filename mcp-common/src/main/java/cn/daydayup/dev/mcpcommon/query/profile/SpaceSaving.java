@@ -0,0 +1,78 @@
+package cn.daydayup.dev.mcpcommon.query.profile;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @ClassName SpaceSaving
+ * @Description Space-Saving 高频值统计：只保留固定数量的计数器，计数器满时替换计数最小的值，
+ * 计数为上界，误差不超过 总数/计数器数
+ * @Author ZhaoYanNing
+ * @Date 2026/10/18 16:00
+ * @Version 1.0
+ */
+final class SpaceSaving {
+
+    private final int capacity;
+
+    /**
+     * 值 -> {计数, 误差}
+     */
+    private final Map<String, long[]> counters;
+
+    SpaceSaving(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        this.counters = new HashMap<>(this.capacity * 4 / 3 + 1);
+    }
+
+    void add(String value) {
+        // 配置 top-k 为0时不统计高频值
+        if (capacity == 0) {
+            return;
+        }
+        long[] counter = counters.get(value);
+        if (counter != null) {
+            counter[0]++;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(value, new long[]{1, 0});
+            return;
+        }
+        // 计数器已满：替换计数最小的值，新值继承其计数作为误差
+        String minValue = null;
+        long[] min = null;
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            if (min == null || entry.getValue()[0] < min[0]) {
+                minValue = entry.getKey();
+                min = entry.getValue();
+            }
+        }
+        counters.remove(minValue);
+        counters.put(value, new long[]{min[0] + 1, min[0]});
+    }
+
+    /**
+     * 按计数倒序取前k个值
+     * @param k 数量
+     * @return 每个值的 value、count，计数不精确时带上误差 error
+     */
+    List<Map<String, Object>> top(int k) {
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(counters.entrySet());
+        entries.sort((left, right) -> Long.compare(right.getValue()[0], left.getValue()[0]));
+        List<Map<String, Object>> top = new ArrayList<>();
+        for (int i = 0; i < Math.min(k, entries.size()); i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("value", entries.get(i).getKey());
+            item.put("count", entries.get(i).getValue()[0]);
+            if (entries.get(i).getValue()[1] > 0) {
+                item.put("error", entries.get(i).getValue()[1]);
+            }
+            top.add(item);
+        }
+        return top;
+    }
+}
@@ -0,0 +1,27 @@
+package cn.daydayup.dev.mcpcommon.schema;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import java.time.Duration;
+
+/**
+ * @ClassName SchemaCacheProperties
+ * @Description 表结构元数据缓存配置
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 11:05
+ * @Version 1.0
+ */
+@Data
+@ConfigurationProperties(prefix = "mcp.schema-cache")
+public class SchemaCacheProperties {
+
+    /**
+     * 缓存条目的存活时间
+     */
+    private Duration ttl = Duration.ofHours(6);
+
+    /**
+     * 最多缓存的表结构数量
+     */
+    private long maxTables = 5000;
+}
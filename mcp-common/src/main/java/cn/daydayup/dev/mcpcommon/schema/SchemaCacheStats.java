@@ -0,0 +1,16 @@
+package cn.daydayup.dev.mcpcommon.schema;
+
+/**
+ * @ClassName SchemaCacheStats
+ * @Description 表结构元数据缓存统计
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 11:05
+ * @Version 1.0
+ */
+public record SchemaCacheStats(long hitCount,
+                               long missCount,
+                               double hitRate,
+                               long evictionCount,
+                               long tableListSize,
+                               long columnInfoSize) {
+}
@@ -0,0 +1,121 @@
+package cn.daydayup.dev.mcpcommon.schema;
+
+import cn.daydayup.dev.mcpcommon.datasource.PooledDataSource;
+import cn.daydayup.dev.mcpcommon.query.QueryGovernor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.tuple.Pair;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @ClassName SchemaCatalog
+ * @Description 表结构元数据缓存，表清单和表结构变化很少，按TTL缓存避免每次调用都查询数据库
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 11:05
+ * @Version 1.0
+ */
+@Slf4j
+public class SchemaCatalog {
+
+    /**
+     * 数据源ID -> 表清单
+     */
+    private final Cache<String, Pair<List<String>, List<List<String>>>> tables;
+
+    /**
+     * 数据源ID + 表名 -> 列信息
+     */
+    private final Cache<ColumnKey, Pair<List<String>, List<List<String>>>> columns;
+
+    /**
+     * 列信息从连接池读取，受并发数和超时管控
+     */
+    private final QueryGovernor queryGovernor;
+
+    public SchemaCatalog(SchemaCacheProperties properties, QueryGovernor queryGovernor) {
+        this.queryGovernor = queryGovernor;
+        this.tables = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        this.columns = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getTtl())
+                .maximumSize(properties.getMaxTables())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 获取数据库中所有表的信息
+     * @param dataSource 数据源
+     * @return 表头和数据行
+     */
+    public Pair<List<String>, List<List<String>>> getAllTableInfo(PooledDataSource dataSource) {
+        return tables.get(dataSource.getId(), id -> dataSource.getAllTableInfo());
+    }
+
+    /**
+     * 获取指定表的列信息
+     * @param dataSource 数据源
+     * @param tableName 表名
+     * @return 表头和数据行
+     */
+    public Pair<List<String>, List<List<String>>> getColumnInfo(PooledDataSource dataSource, String tableName) {
+        return columns.get(new ColumnKey(dataSource.getId(), tableName), key -> {
+            try {
+                return queryGovernor.columns(dataSource, tableName);
+            } catch (SQLException e) {
+                throw new IllegalStateException("获取表[" + tableName + "]的列信息失败: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * 已缓存的列信息，不会触发数据库查询
+     * @param dataSourceId 数据源ID
+     * @return 表名 -> 列信息
+     */
+    public Map<String, Pair<List<String>, List<List<String>>>> cachedColumns(String dataSourceId) {
+        Map<String, Pair<List<String>, List<List<String>>>> cached = new TreeMap<>();
+        columns.asMap().forEach((key, value) -> {
+            if (key.dataSourceId().equals(dataSourceId)) {
+                cached.put(key.tableName(), value);
+            }
+        });
+        return cached;
+    }
+
+    /**
+     * 清空数据源的缓存并重新加载表清单
+     * @param dataSource 数据源
+     */
+    public void refresh(PooledDataSource dataSource) {
+        String id = dataSource.getId();
+        tables.invalidate(id);
+        columns.asMap().keySet().removeIf(key -> key.dataSourceId().equals(id));
+        getAllTableInfo(dataSource);
+        log.info("数据源[{}]的表结构缓存已刷新", id);
+    }
+
+    /**
+     * 缓存命中统计
+     * @return 统计信息
+     */
+    public SchemaCacheStats stats() {
+        CacheStats stats = tables.stats().plus(columns.stats());
+        return new SchemaCacheStats(stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount(),
+                tables.estimatedSize(),
+                columns.estimatedSize());
+    }
+
+    private record ColumnKey(String dataSourceId, String tableName) {
+    }
+}
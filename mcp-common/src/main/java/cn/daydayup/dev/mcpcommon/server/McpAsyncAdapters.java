@@ -0,0 +1,91 @@
+package cn.daydayup.dev.mcpcommon.server;
+
+import cn.daydayup.dev.mcpcommon.query.QueryContext;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+import io.modelcontextprotocol.spec.McpSchema;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @ClassName McpAsyncAdapters
+ * @Description 将同步的工具、资源和提示转换为异步规范，阻塞调用切换到指定的调度器中执行；
+ * 工具调用绑定查询上下文，超时或被取消时取消执行中的SQL语句
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 13:40
+ * @Version 1.0
+ */
+public final class McpAsyncAdapters {
+
+    private McpAsyncAdapters() {
+    }
+
+    public static McpServerFeatures.AsyncToolSpecification tool(McpServerFeatures.SyncToolSpecification spec,
+                                                                Scheduler scheduler) {
+        return tool(spec, scheduler, null);
+    }
+
+    /**
+     * 异步工具，超过截止时间或订阅被取消（如客户端断开）时取消执行中的SQL语句
+     * @param spec 同步工具规范
+     * @param scheduler 执行阻塞调用的调度器
+     * @param timeout 调用的截止时间，为null时不限制
+     * @return 异步工具规范
+     */
+    public static McpServerFeatures.AsyncToolSpecification tool(McpServerFeatures.SyncToolSpecification spec,
+                                                                Scheduler scheduler, Duration timeout) {
+        return new McpServerFeatures.AsyncToolSpecification(spec.tool(), (exchange, arguments) -> {
+            QueryContext context = QueryContext.withTimeout(timeout);
+            Mono<McpSchema.CallToolResult> call = Mono.fromCallable(
+                            () -> context.call(() -> spec.call().apply(new McpSyncServerExchange(exchange), arguments)))
+                    .subscribeOn(scheduler)
+                    .doOnCancel(context::cancel);
+            if (timeout == null) {
+                return call;
+            }
+            return call.timeout(timeout, Mono.fromSupplier(() -> timeoutResult(spec, timeout)));
+        });
+    }
+
+    /**
+     * 同步工具绑定查询上下文，SQL语句的超时时间不超过调用的剩余时间
+     * @param spec 同步工具规范
+     * @param timeout 调用的截止时间
+     * @return 同步工具规范
+     */
+    public static McpServerFeatures.SyncToolSpecification deadline(McpServerFeatures.SyncToolSpecification spec,
+                                                                   Duration timeout) {
+        return new McpServerFeatures.SyncToolSpecification(spec.tool(), (exchange, arguments) -> {
+            try {
+                return QueryContext.withTimeout(timeout).call(() -> spec.call().apply(exchange, arguments));
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        });
+    }
+
+    public static McpServerFeatures.AsyncResourceSpecification resource(McpServerFeatures.SyncResourceSpecification spec,
+                                                                        Scheduler scheduler) {
+        return new McpServerFeatures.AsyncResourceSpecification(spec.resource(),
+                (exchange, request) -> Mono.fromCallable(
+                                () -> spec.readHandler().apply(new McpSyncServerExchange(exchange), request))
+                        .subscribeOn(scheduler));
+    }
+
+    public static McpServerFeatures.AsyncPromptSpecification prompt(McpServerFeatures.SyncPromptSpecification spec,
+                                                                    Scheduler scheduler) {
+        return new McpServerFeatures.AsyncPromptSpecification(spec.prompt(),
+                (exchange, request) -> Mono.fromCallable(
+                                () -> spec.promptHandler().apply(new McpSyncServerExchange(exchange), request))
+                        .subscribeOn(scheduler));
+    }
+
+    private static McpSchema.CallToolResult timeoutResult(McpServerFeatures.SyncToolSpecification spec, Duration timeout) {
+        return new McpSchema.CallToolResult(List.of(new McpSchema.TextContent(
+                "工具[" + spec.tool().name() + "]执行超过" + timeout.toSeconds() + "秒，已取消")), true);
+    }
+}
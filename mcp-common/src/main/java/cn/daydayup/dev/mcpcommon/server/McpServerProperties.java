@@ -0,0 +1,37 @@
+package cn.daydayup.dev.mcpcommon.server;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import java.time.Duration;
+
+/**
+ * @ClassName McpServerProperties
+ * @Description MCP服务器运行配置
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 13:40
+ * @Version 1.0
+ */
+@Data
+@ConfigurationProperties(prefix = "mcp.server")
+public class McpServerProperties {
+
+    /**
+     * 运行模式：sync 或 async
+     */
+    private ServerMode mode = ServerMode.SYNC;
+
+    /**
+     * 异步模式下执行工具的最大并发数
+     */
+    private int executorThreads = 64;
+
+    /**
+     * 异步模式下排队等待执行的工具调用数上限
+     */
+    private int executorQueueCapacity = 256;
+
+    /**
+     * 单次工具调用的截止时间，超时后取消执行中的SQL语句并返回错误
+     */
+    private Duration toolTimeout = Duration.ofMinutes(2);
+}
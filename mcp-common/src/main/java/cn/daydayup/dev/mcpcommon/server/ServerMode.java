@@ -0,0 +1,21 @@
+package cn.daydayup.dev.mcpcommon.server;
+
+/**
+ * @ClassName ServerMode
+ * @Description MCP服务器运行模式
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 13:40
+ * @Version 1.0
+ */
+public enum ServerMode {
+
+    /**
+     * 同步服务器，工具在请求线程中执行
+     */
+    SYNC,
+
+    /**
+     * 异步服务器，阻塞的JDBC/LLM调用在独立的有界线程池中执行
+     */
+    ASYNC
+}
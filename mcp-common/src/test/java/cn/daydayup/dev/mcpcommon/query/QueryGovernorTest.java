@@ -0,0 +1,139 @@
+package cn.daydayup.dev.mcpcommon.query;
+
+import cn.daydayup.dev.mcpcommon.datasource.PooledDataSource;
+import cn.daydayup.dev.mcpcommon.metrics.McpMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QueryGovernorTest {
+
+    private final QueryProperties properties = new QueryProperties();
+
+    private final Statement statement = mock(Statement.class);
+
+    private final PooledDataSource dataSource = mock(PooledDataSource.class);
+
+    private final QueryGovernor governor;
+
+    QueryGovernorTest() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement(anyInt(), anyInt())).thenReturn(statement);
+        when(dataSource.getId()).thenReturn("ds");
+        when(dataSource.getType()).thenReturn("mysql");
+        when(dataSource.getMaxConcurrentQueries()).thenReturn(1);
+        when(dataSource.getConnection()).thenReturn(connection);
+        governor = new QueryGovernor(properties, new McpMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void rejectsWhenQueueTimeoutElapses() throws Exception {
+        properties.getGovernor().setQueueTimeout(Duration.ofMillis(50));
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 唯一的并发许可被执行中的查询占用
+            Future<Object> holder = executor.submit(() -> governor.execute(dataSource, 1, statement -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+
+            assertThrows(SQLTransientException.class, () -> governor.execute(dataSource, 1, statement -> null));
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void statementTimeoutIsCappedByDeadline() throws Exception {
+        properties.getGovernor().setStatementTimeout(Duration.ofSeconds(30));
+
+        QueryContext.withTimeout(Duration.ofMillis(2500))
+                .call(() -> governor.execute(dataSource, 1, statement -> null));
+
+        verify(statement).setQueryTimeout(3);
+    }
+
+    @Test
+    void cancelCancelsRunningStatement() throws Exception {
+        QueryContext context = QueryContext.withTimeout(null);
+
+        context.call(() -> governor.execute(dataSource, 1, statement -> {
+            context.cancel();
+            return null;
+        }));
+
+        verify(statement).cancel();
+        SQLException rejected = assertThrows(SQLException.class,
+                () -> context.call(() -> governor.execute(dataSource, 1, statement -> null)));
+        assertEquals("查询已取消", rejected.getMessage());
+    }
+
+    @Test
+    void forkWithExhaustedBudgetIsExpired() {
+        QueryContext context = QueryContext.fork(Duration.ZERO);
+
+        assertFalse(context.isActive());
+        assertThrows(SQLTimeoutException.class,
+                () -> context.call(() -> governor.execute(dataSource, 1, statement -> null)));
+        assertTrue(QueryContext.fork(null).isActive());
+    }
+
+    @Test
+    void escapesLikeWildcardsInTableNames() {
+        assertEquals("tb\\_dlyc\\_area", QueryGovernor.pattern("tb_dlyc_area", "\\"));
+        assertEquals("rate\\%", QueryGovernor.pattern("rate%", "\\"));
+        assertEquals("tb_org", QueryGovernor.pattern("tb_org", ""));
+    }
+
+    @Test
+    void queryStopsAtByteBudget() throws Exception {
+        properties.setMaxBytes(10);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnLabel(1)).thenReturn("remark");
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        when(resultSet.getString(1)).thenReturn("阿勒泰", "伊犁州", "塔城");
+        when(statement.executeQuery("select remark from tb_org")).thenReturn(resultSet);
+
+        Pair<List<String>, List<List<String>>> result = governor.query(dataSource, "select remark from tb_org");
+
+        // 每个值9字节，第二行累计18字节超过上限
+        assertEquals(List.of(List.of("阿勒泰")), result.getValue());
+    }
+}
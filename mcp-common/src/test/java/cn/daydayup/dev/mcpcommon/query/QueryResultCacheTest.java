@@ -0,0 +1,63 @@
+package cn.daydayup.dev.mcpcommon.query;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryResultCacheTest {
+
+    private static final String SQL = "select * from tb_dlyc_area_hy_month where org_name = '阿勒泰'";
+
+    private final QueryProperties properties = new QueryProperties();
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    /**
+     * 移除通知和维护任务先排队，由测试决定何时执行，模拟异步通知晚于写入
+     */
+    private final Deque<Runnable> pending = new ArrayDeque<>();
+
+    private final QueryResultCache cache;
+
+    QueryResultCacheTest() {
+        properties.getResultCache().setEnabled(true);
+        cache = new QueryResultCache(properties, nanos::get, pending::add);
+    }
+
+    @Test
+    void lateExpiryNotificationKeepsIndexOfNewResult() {
+        cache.put("mysql", SQL, "pair", result("old"));
+        nanos.addAndGet(properties.getResultCache().getTtl().toNanos() + 1);
+        cache.put("mysql", SQL, "pair", result("new"));
+        drain();
+
+        assertEquals("new", cache.get("mysql", SQL, "pair").orElseThrow().content());
+        assertEquals(1, cache.invalidateTable("mysql", "tb_dlyc_area_hy_month"));
+        assertTrue(cache.get("mysql", SQL, "pair").isEmpty());
+    }
+
+    @Test
+    void commaJoinIndexesEveryTable() {
+        String sql = "select a.org_name, b.hy_name from tb_org a, tb_hy b where a.id = b.org_id";
+        assertEquals(Set.of("tb_org", "tb_hy"), QueryResultCache.referencedTables(sql));
+
+        cache.put("mysql", sql, "pair", result("joined"));
+        assertEquals(1, cache.invalidateTable("mysql", "tb_hy"));
+        assertTrue(cache.get("mysql", sql, "pair").isEmpty());
+    }
+
+    private void drain() {
+        while (!pending.isEmpty()) {
+            pending.poll().run();
+        }
+    }
+
+    private static StreamingResult result(String content) {
+        return new StreamingResult(content, 1, 1, content.length(), false);
+    }
+}
@@ -0,0 +1,54 @@
+package cn.daydayup.dev.mcpcommon.query;
+
+import org.junit.jupiter.api.Test;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ResultWriterTest {
+
+    private static final String[] LABELS = {"org", "remark"};
+
+    @Test
+    void columnarWritesOneArrayPerColumn() throws Exception {
+        assertEquals("{\"columns\":[\"org\",\"remark\"],\"data\":[[\"阿勒泰\",null],[\"a,b\",\"x|y\\nz\"]],"
+                + "\"rowCount\":2,\"rowsSeen\":3,\"truncated\":true}", write(ResultFormat.COLUMNAR));
+    }
+
+    @Test
+    void csvQuotesSpecialCharacters() throws Exception {
+        assertEquals("org,remark\n阿勒泰,\"a,b\"\n,\"x|y\nz\"\n", write(ResultFormat.CSV));
+    }
+
+    @Test
+    void markdownEscapesPipesAndNewlines() throws Exception {
+        assertEquals("| org | remark |\n| --- | --- |\n| 阿勒泰 | a,b |\n|  | x\\|y<br>z |\n",
+                write(ResultFormat.MARKDOWN));
+    }
+
+    /**
+     * 写入两行后再写入第三行并丢弃，模拟超出字节限制
+     */
+    private static String write(ResultFormat format) throws Exception {
+        ResultSet first = resultSet("阿勒泰", "a,b");
+        ResultSet second = resultSet(null, "x|y\nz");
+        StringBuilder buffer = new StringBuilder();
+        ResultWriter writer = ResultWriter.of(format, buffer, LABELS);
+        writer.header();
+        writer.row(first, 0);
+        writer.row(second, 1);
+        writer.row(first, 2);
+        writer.discardRow();
+        writer.footer(2, 3, true);
+        return buffer.toString();
+    }
+
+    private static ResultSet resultSet(String org, String remark) throws Exception {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getString(1)).thenReturn(org);
+        when(resultSet.getString(2)).thenReturn(remark);
+        return resultSet;
+    }
+}
@@ -0,0 +1,26 @@
+package cn.daydayup.dev.mcpcommon.query;
+
+import org.junit.jupiter.api.Test;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StreamingQueryExecutorTest {
+
+    @Test
+    void acceptsQueries() {
+        assertDoesNotThrow(() -> StreamingQueryExecutor.requireReadOnly(
+                "with t as (select org_name from tb_org) select * from t"));
+        assertDoesNotThrow(() -> StreamingQueryExecutor.requireReadOnly("show tables"));
+        assertDoesNotThrow(() -> StreamingQueryExecutor.requireReadOnly("describe tb_org"));
+    }
+
+    @Test
+    void rejectsDataModification() {
+        assertThrows(SQLException.class,
+                () -> StreamingQueryExecutor.requireReadOnly("update tb_org set org_name = '伊犁' where id = 1"));
+        assertThrows(SQLException.class,
+                () -> StreamingQueryExecutor.requireReadOnly("select * from tb_org; delete from tb_org"));
+    }
+}
@@ -0,0 +1,92 @@
+package cn.daydayup.dev.mcpcommon.query.profile;
+
+import cn.daydayup.dev.mcpcommon.query.QueryProperties;
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import org.junit.jupiter.api.Test;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ResultProfilerTest {
+
+    @Test
+    void summarizesEachColumnInOnePass() throws Exception {
+        ResultProfiler.Profile profile = new ResultProfiler(new QueryProperties.Profile()).profile(resultSet());
+        JSONObject content = JSON.parseObject(profile.content());
+
+        assertEquals(3, profile.rowCount());
+        assertFalse(profile.truncated());
+        JSONObject org = content.getJSONArray("columns").getJSONObject(0);
+        assertEquals(3, org.getIntValue("count"));
+        assertEquals(2, org.getIntValue("distinct"));
+        assertEquals("阿勒泰", org.getJSONArray("topValues").getJSONObject(0).getString("value"));
+        assertEquals(2, org.getJSONArray("topValues").getJSONObject(0).getIntValue("count"));
+
+        JSONObject power = content.getJSONArray("columns").getJSONObject(1);
+        assertEquals(2, power.getIntValue("count"));
+        assertEquals(1, power.getIntValue("nulls"));
+        assertEquals("1.5", power.getString("min"));
+        assertEquals("10", power.getString("max"));
+        assertEquals(5.75, power.getDoubleValue("mean"));
+        assertEquals(3, content.getJSONObject("sample").getJSONArray("rows").size());
+    }
+
+    @Test
+    void stopsAtMaxRows() throws Exception {
+        QueryProperties.Profile properties = new QueryProperties.Profile();
+        properties.setMaxRows(2);
+        ResultProfiler.Profile profile = new ResultProfiler(properties).profile(resultSet());
+
+        assertEquals(2, profile.rowCount());
+        assertTrue(profile.truncated());
+    }
+
+    @Test
+    void zeroTopKSkipsFrequentValues() throws Exception {
+        QueryProperties.Profile properties = new QueryProperties.Profile();
+        properties.setTopK(0);
+        JSONObject content = JSON.parseObject(new ResultProfiler(properties).profile(resultSet()).content());
+
+        JSONObject org = content.getJSONArray("columns").getJSONObject(0);
+        assertEquals(3, org.getIntValue("count"));
+        assertTrue(org.getJSONArray("topValues").isEmpty());
+    }
+
+    @Test
+    void hyperLogLogStaysWithinErrorBound() {
+        HyperLogLog distinct = new HyperLogLog(12);
+        for (int i = 0; i < 100_000; i++) {
+            distinct.add("value-" + i);
+            distinct.add("value-" + i);
+        }
+        // 精度12的标准误差约1.6%，按3倍标准误差断言
+        assertEquals(100_000, distinct.estimate(), 100_000 * 0.05);
+    }
+
+    /**
+     * 三行数据：(阿勒泰, 1.5)、(阿勒泰, 10)、(伊犁, NULL)
+     */
+    private static ResultSet resultSet() throws Exception {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnLabel(1)).thenReturn("org");
+        when(metaData.getColumnLabel(2)).thenReturn("power");
+        when(metaData.getColumnTypeName(1)).thenReturn("VARCHAR");
+        when(metaData.getColumnTypeName(2)).thenReturn("DECIMAL");
+        when(metaData.getColumnType(1)).thenReturn(Types.VARCHAR);
+        when(metaData.getColumnType(2)).thenReturn(Types.DECIMAL);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        when(resultSet.getString(1)).thenReturn("阿勒泰", "阿勒泰", "伊犁");
+        when(resultSet.getString(2)).thenReturn("1.5", "10", null);
+        return resultSet;
+    }
+}
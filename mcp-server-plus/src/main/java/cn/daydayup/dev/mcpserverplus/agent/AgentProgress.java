@@ -0,0 +1,72 @@
+package cn.daydayup.dev.mcpserverplus.agent;
+
+import org.bsc.langgraph4j.state.AgentState;
+import java.util.Optional;
+
+/**
+ * @ClassName AgentProgress
+ * @Description 智能体节点完成后的进度描述，在图运行过程中推送给客户端
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 21:40
+ * @Version 1.0
+ */
+public final class AgentProgress {
+
+    /**
+     * SQL在进度消息中最多展示的字符数
+     */
+    private static final int MAX_SQL_LENGTH = 2000;
+
+    private AgentProgress() {
+    }
+
+    /**
+     * 描述节点完成后的中间结果
+     * @param node 节点名称
+     * @param state 节点完成后的状态
+     * @return 进度描述，非智能体节点（如开始、结束）时为空
+     */
+    public static Optional<String> describe(String node, AgentState state) {
+        return Optional.ofNullable(switch (node) {
+            case "listTables" -> "已检索候选表";
+            case "getTableSchema" -> "已选定目标表：" + state.value("targetTables").orElse("")
+                    + "，已获取表结构和样例数据";
+            case "reuseSchema" -> "复用会话中已选定的表：" + state.value("targetTables").orElse("");
+            case "text2Sql" -> "已生成SQL（第" + state.value("text2SqlAttempts").orElse(1) + "次"
+                    + (Boolean.TRUE.equals(state.value("sqlFromCache").orElse(false)) ? "，复用缓存" : "")
+                    + "）：" + abbreviate((String) state.value("sql").orElse(""));
+            case "preInspection" -> preInspection(state);
+            case "executeSql" -> executeSql(state);
+            case "fallback" -> "已达到生成SQL的次数或耗时上限，"
+                    + state.value("resultRows").filter(rows -> (Integer) rows > 0)
+                    .map(rows -> "返回截断后的结果" + rows + "行").orElse("结束查询");
+            default -> null;
+        });
+    }
+
+    private static String preInspection(AgentState state) {
+        String verdict = (String) state.value("preInspection").orElse("");
+        if (!"continue".equals(verdict)) {
+            return "预检查未通过，重新生成SQL：" + verdict;
+        }
+        String rewritten = Boolean.TRUE.equals(state.value("sqlRewritten").orElse(false))
+                ? "（结果过大，已在本地改写SQL：" + abbreviate((String) state.value("sql").orElse("")) + "）" : "";
+        return state.value("probeRows")
+                .map(rows -> "预检查通过，结果" + rows + "行" + rewritten)
+                .orElse("预检查通过" + rewritten);
+    }
+
+    private static String executeSql(AgentState state) {
+        String response = (String) state.value(SqlQueryAgent.FINAL_RESPONSE).orElse("");
+        if (response.startsWith("SQL执行失败")) {
+            return response;
+        }
+        return state.value("resultRows")
+                .map(rows -> "查询完成，返回" + rows + "行")
+                .orElse("查询完成");
+    }
+
+    private static String abbreviate(String sql) {
+        return sql.length() <= MAX_SQL_LENGTH ? sql : sql.substring(0, MAX_SQL_LENGTH) + "...";
+    }
+}
@@ -1,22 +1,55 @@
 package cn.daydayup.dev.mcpserverplus.agent;
 
-import cn.daydayup.dev.connection.core.adapter.DatabaseAdapter;
-import cn.daydayup.dev.connection.core.database.AbstractJdbcDataSource;
+import cn.daydayup.dev.mcpcommon.datasource.PooledDataSource;
+import cn.daydayup.dev.mcpcommon.metrics.McpMetrics;
+import cn.daydayup.dev.mcpcommon.query.QueryContext;
+import cn.daydayup.dev.mcpcommon.query.QueryGovernor;
+import cn.daydayup.dev.mcpcommon.query.QueryResultCache;
+import cn.daydayup.dev.mcpcommon.query.ResultFormat;
+import cn.daydayup.dev.mcpcommon.query.StreamingQueryExecutor;
+import cn.daydayup.dev.mcpcommon.query.StreamingResult;
+import cn.daydayup.dev.mcpcommon.schema.SchemaCatalog;
+import cn.daydayup.dev.mcpserverplus.cache.QuestionSqlCache;
+import cn.daydayup.dev.mcpserverplus.config.AgentProperties;
 import cn.daydayup.dev.mcpserverplus.invoke.TargetTable;
 import cn.daydayup.dev.mcpserverplus.invoke.Text2SQL;
+import cn.daydayup.dev.mcpserverplus.prompt.SchemaEncoder;
+import cn.daydayup.dev.mcpserverplus.retrieval.SchemaHeaders;
+import cn.daydayup.dev.mcpserverplus.retrieval.TableRetriever;
+import cn.daydayup.dev.mcpserverplus.rewrite.SqlRewriter;
 import com.alibaba.fastjson.JSON;
 import dev.langchain4j.model.chat.ChatModel;
+import io.micrometer.core.instrument.Tags;
+import lombok.Builder;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.bsc.langgraph4j.StateGraph;
+import org.bsc.langgraph4j.action.NodeAction;
 import org.bsc.langgraph4j.langchain4j.serializer.std.LC4jStateSerializer;
 import org.bsc.langgraph4j.state.AgentState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.DigestUtils;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import static org.bsc.langgraph4j.StateGraph.END;
@@ -31,18 +64,54 @@ import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
  * @Date 2025/5/13 13:21
  * @Version 1.0
  */
-public class SqlQueryAgent implements AgentNode{
+@Builder
+public class SqlQueryAgent implements AgentNode, AutoCloseable{
 
     private static final Logger log = LoggerFactory.getLogger(SqlQueryAgent.class);
-    private static final String FINAL_RESPONSE = "agent_response";
+    static final String FINAL_RESPONSE = "agent_response";
+    /**
+     * 只在一次运行内使用的大字段（候选表、预检查结果、最终结果），追问时不需要，不保存到会话检查点中
+     */
+    public static final Set<String> RESULT_KEYS = Set.of("listTables", "probeResult", FINAL_RESPONSE);
 
     private final ChatModel chatModel;
-    private final String dbConfig;
+    private final PooledDataSource dataSource;
+    private final SchemaCatalog schemaCatalog;
+    private final QueryResultCache queryResultCache;
+    private final StreamingQueryExecutor streamingQueryExecutor;
+    private final AgentProperties properties;
+    /**
+     * 并发读取表结构和样例数据的线程池，并发数与连接池大小一致
+     */
+    private final ExecutorService schemaExecutor;
+    private final TableRetriever tableRetriever;
+    private final QuestionSqlCache questionSqlCache;
+    private final SchemaEncoder schemaEncoder;
+    private final McpMetrics metrics;
+    private final QueryGovernor queryGovernor;
+    /**
+     * 并行生成和预检查候选SQL的线程池，未启用候选SQL时为null
+     */
+    private final ExecutorService candidateExecutor;
+    /**
+     * 结果过大时在本地改写SQL，未启用时为null
+     */
+    private final SqlRewriter sqlRewriter;
 
-    public SqlQueryAgent(ChatModel chatModel,String dbConfig) {
-        this.chatModel = chatModel;
-        this.dbConfig = dbConfig;
-    }
+    /**
+     * 候选SQL的生成要求，每条候选使用不同的要求以增加差异
+     */
+    private final static List<String> CANDIDATE_HINTS = List.of(
+            "",
+            "\n要求：优先使用聚合、分组和筛选条件，尽量减少返回的行数。",
+            "\n要求：使用最直接的写法，避免不必要的子查询和窗口函数。",
+            "\n要求：仔细核对表结构中的表名和字段名，只使用表结构中存在的字段。");
+
+    private final static String FOLLOW_UP_PROMPT = """
+            上一个问题：%s
+            上一个问题使用的SQL：%s
+            当前问题是对上一个问题的追问：
+            """;
 
     private final static String SQL_OPTIMIZE_PROMPT = """
             \n
@@ -74,14 +143,16 @@ public class SqlQueryAgent implements AgentNode{
             """;
 
     /**
-     * 列出数据库中的所有表
+     * 列出与问题相关的候选表，表较多时先在本地索引中检索，只把候选表交给大模型
      * @return
      */
     private Map<String, Object> listTables(AgentState state) {
-        AbstractJdbcDataSource abstractJdbcDataSource = buildAbstractDataSource(dbConfig);
-        Pair<List<String>, List<List<String>>> allTableInfo = abstractJdbcDataSource.getAllTableInfo();
-        log.info("[SqlQueryAgent] allTableInfo:{}" , convert(allTableInfo));
-        return Map.of("listTables",JSON.toJSONString(convert(allTableInfo)));
+        String question = (String) state.value("question").orElseThrow();
+        Pair<List<String>, List<List<String>>> allTableInfo = schemaCatalog.getAllTableInfo(dataSource);
+        Pair<List<String>, List<List<String>>> candidates = tableRetriever.candidates(dataSource, allTableInfo, question);
+        log.info("[SqlQueryAgent] candidateTables:{}" , convert(candidates));
+        // 重新选表时不再把上一个问题作为上下文
+        return Map.of("listTables",JSON.toJSONString(convert(candidates)), "lastQuestion", "", "lastSql", "");
     }
 
     /**
@@ -93,19 +164,130 @@ public class SqlQueryAgent implements AgentNode{
         List<Map<String,Object>> columnInfos = new ArrayList<>();
         String listTables = (String)state.value("listTables").orElseThrow();
         String question = (String) state.value("question").orElseThrow();
-        List<String> targetTable = new TargetTable(chatModel).apply(listTables, question);
-        AbstractJdbcDataSource abstractJdbcDataSource = buildAbstractDataSource(dbConfig);
+        List<String> targetTable = metrics.recordUnchecked(McpMetrics.LLM, Tags.of("call", "targetTable"),
+                () -> new TargetTable(chatModel).apply(listTables, question));
+        // 所有表的结构和样例数据同时查询，整体耗时约等于一次查询
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getSchemaTimeoutMs());
+        List<Task<Pair<List<String>, List<List<String>>>>> columnFutures = new ArrayList<>();
+        List<Task<Pair<List<String>, List<List<String>>>>> sampleFutures = new ArrayList<>();
+        // 表名 -> 列信息，用于计算表结构指纹
+        Map<String, Object> fingerprintSource = new TreeMap<>();
+        List<SchemaEncoder.TableSchema> tableSchemas = new ArrayList<>();
+        Map<String, String> tableComments = tableComments();
         for (String table : targetTable) {
+            columnFutures.add(submit(() -> schemaCatalog.getColumnInfo(dataSource, table)));
+            sampleFutures.add(submit(() -> getSampleData(table)));
+        }
+        for (int i = 0; i < targetTable.size(); i++) {
+            String table = targetTable.get(i);
             Map<String,Object> tableInfo = new HashMap<>();
-
-            Pair<List<String>, List<List<String>>> columnInfo = abstractJdbcDataSource.getColumnInfo(table);
             tableInfo.put("tableName",table);
-            tableInfo.put("columnInfo",convert(columnInfo));
-            tableInfo.put("sampleData",convert(getSampleData(abstractJdbcDataSource,table)));
+            Pair<List<String>, List<List<String>>> columnInfo = await(columnFutures.get(i), deadline, table, "表结构");
+            tableInfo.put("columnInfo", columnInfo == null ? List.of() : convert(columnInfo));
+            fingerprintSource.put(table, columnInfo == null ? null : columnInfo.getValue());
+            // 样例数据获取失败时只提供表结构
+            Pair<List<String>, List<List<String>>> sampleData = await(sampleFutures.get(i), deadline, table, "样例数据");
+            if (sampleData != null) {
+                tableInfo.put("sampleData",convert(sampleData));
+            }
             columnInfos.add(tableInfo);
+            tableSchemas.add(new SchemaEncoder.TableSchema(table, tableComments.get(table), columnInfo, sampleData));
+        }
+        String schema = JSON.toJSONString(columnInfos);
+        int legacyBytes = schema.getBytes(StandardCharsets.UTF_8).length;
+        // 紧凑格式按问题裁剪了列，同时保存未裁剪的表结构，追问时按新问题重新编码
+        String unpruned = "";
+        if (properties.getSchemaPrompt().isCompact()) {
+            schema = schemaEncoder.encode(question, tableSchemas, legacyBytes);
+            unpruned = SchemaEncoder.toJson(tableSchemas);
+        }
+        log.info("[SqlQueryAgent] schema:{}" , schema);
+        // 有表结构获取失败时不计算指纹，本次问题不使用SQL缓存
+        String targetTables = String.join(",", targetTable);
+        if (fingerprintSource.containsValue(null)) {
+            return Map.of("schema", schema, "schemaFingerprint", "", "targetTables", targetTables,
+                    "tableSchemas", unpruned, "legacySchemaBytes", legacyBytes);
+        }
+        String tableSet = dataSource.getId() + ":" + String.join(",", fingerprintSource.keySet());
+        String fingerprint = DigestUtils.md5DigestAsHex((dataSource.getId() + JSON.toJSONString(fingerprintSource))
+                .getBytes(StandardCharsets.UTF_8));
+        return Map.of("schema", schema, "tableSet", tableSet, "schemaFingerprint", fingerprint,
+                "targetTables", targetTables, "tableSchemas", unpruned, "legacySchemaBytes", legacyBytes);
+    }
+
+    /**
+     * 追问复用已选定的表：上一个问题裁剪掉的列可能与新问题有关，按新问题重新编码未裁剪的表结构
+     * @param state
+     * @return
+     */
+    private Map<String, Object> reuseSchema(AgentState state) {
+        String tableSchemas = (String) state.value("tableSchemas").orElse("");
+        if (!properties.getSchemaPrompt().isCompact() || StringUtils.isEmpty(tableSchemas)) {
+            return Map.of();
+        }
+        String question = (String) state.value("question").orElseThrow();
+        String schema = schemaEncoder.encode(question, SchemaEncoder.fromJson(tableSchemas),
+                (Integer) state.value("legacySchemaBytes").orElse(0));
+        log.info("[SqlQueryAgent] session schema:{}", schema);
+        return Map.of("schema", schema);
+    }
+
+    /**
+     * 表名 -> 表注释，表清单来自表结构缓存
+     */
+    private Map<String, String> tableComments() {
+        Pair<List<String>, List<List<String>>> allTableInfo = schemaCatalog.getAllTableInfo(dataSource);
+        int nameColumn = SchemaHeaders.nameColumn(allTableInfo.getKey());
+        int commentColumn = SchemaHeaders.commentColumn(allTableInfo.getKey(), nameColumn);
+        Map<String, String> comments = new HashMap<>();
+        if (commentColumn >= 0) {
+            for (List<String> row : allTableInfo.getValue()) {
+                comments.put(row.get(nameColumn), row.get(commentColumn));
+            }
+        }
+        return comments;
+    }
+
+    private <T> Task<T> submit(Supplier<T> task) {
+        // 每个任务使用调用的子上下文，截止时间不晚于本次调用；超时时单独取消，执行中的语句随之取消
+        QueryContext context = QueryContext.fork(null);
+        try {
+            return new Task<>(schemaExecutor.submit(() -> context.call(task::get)), context);
+        } catch (RejectedExecutionException e) {
+            return new Task<>(CompletableFuture.failedFuture(e), context);
+        }
+    }
+
+    /**
+     * 在截止时间内等待查询结果，超时或失败时返回null
+     */
+    private static <T> T await(Task<T> task, long deadline, String table, String what) {
+        try {
+            return task.future().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            task.cancel();
+            log.warn("[SqlQueryAgent] 获取表[{}]的{}超时，已跳过", table, what);
+        } catch (ExecutionException e) {
+            log.warn("[SqlQueryAgent] 获取表[{}]的{}失败: {}", table, what, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.cancel();
+        }
+        return null;
+    }
+
+    /**
+     * 线程池中的查询任务及其查询上下文
+     */
+    private record Task<T>(Future<T> future, QueryContext context) {
+
+        /**
+         * 中断执行线程并取消执行中的语句
+         */
+        void cancel() {
+            future.cancel(true);
+            context.cancel();
         }
-        log.info("[SqlQueryAgent] columnInfos:{}" , columnInfos);
-        return Map.of("schema", JSON.toJSONString(columnInfos));
     }
 
     /**
@@ -114,43 +296,277 @@ public class SqlQueryAgent implements AgentNode{
      * @return
      */
     private Map<String, Object> text2Sql(AgentState state) {
+        // 调用已超时或已取消时不再调用大模型
+        QueryContext.checkActive();
         String question = (String) state.value("question").orElseThrow();
         String schema = (String)state.value("schema").orElseThrow();
         String preInspection = (String)state.value("preInspection").orElse("");
-        preInspection = StringUtils.isEmpty(preInspection) ? "" : preInspection+SQL_OPTIMIZE_PROMPT;
-        String text2sql = new Text2SQL(chatModel).apply(schema,question+preInspection);
+        String fingerprint = (String) state.value("schemaFingerprint").orElse("");
+        // 本次问答中生成SQL的次数，结束时记录到指标中
+        int attempts = (Integer) state.value("text2SqlAttempts").orElse(0) + 1;
+        // 同一会话复用表结构的追问，带上上一个问题和SQL作为上下文
+        String lastQuestion = (String) state.value("lastQuestion").orElse("");
+        String history = StringUtils.isEmpty(lastQuestion) || lastQuestion.equals(question) ? ""
+                : String.format(FOLLOW_UP_PROMPT, lastQuestion, state.value("lastSql").orElse(""));
+        // 首次生成SQL时先查缓存，相同或相似的问题直接复用已执行成功的SQL，仍需经过预检查；追问依赖上下文，不查缓存
+        if (StringUtils.isEmpty(preInspection) && StringUtils.isNotEmpty(fingerprint) && history.isEmpty()) {
+            String tableSet = (String) state.value("tableSet").orElseThrow();
+            Optional<String> cached = questionSqlCache.get(tableSet, fingerprint, question);
+            if (cached.isPresent()) {
+                log.info("[SqlQueryAgent] text2sql hit cache:{}", cached.get());
+                return Map.of("sql", cached.get(), "sqlFromCache", true, "text2SqlAttempts", attempts);
+            }
+        }
+        String userInput = history + question
+                + (StringUtils.isEmpty(preInspection) ? "" : preInspection + SQL_OPTIMIZE_PROMPT);
+        if (candidateExecutor != null && properties.getCandidates().getCount() > 1) {
+            return speculate(state, schema, userInput, attempts);
+        }
+        String text2sql = metrics.recordUnchecked(McpMetrics.LLM, Tags.of("call", "text2Sql"),
+                () -> new Text2SQL(chatModel).apply(dataSource.getType(), schema, userInput));
         log.info("[SqlQueryAgent] text2sql:{}", text2sql);
-        return Map.of("sql", text2sql);
+        return Map.of("sql", text2sql, "sqlFromCache", false, "text2SqlAttempts", attempts);
+    }
+
+    /**
+     * 并行生成多条候选SQL并同时预检查，第一条通过的候选胜出，其余候选立即取消；
+     * 没有候选通过时返回结果过大的候选（供兜底使用）或最后一条失败的候选
+     */
+    private Map<String, Object> speculate(AgentState state, String schema, String userInput, int attempts) {
+        ResultFormat format = resultFormat(state);
+        Duration remaining = Duration.ofMillis(budgetDeadline(state) - System.currentTimeMillis());
+        if (remaining.isZero() || remaining.isNegative()) {
+            // 耗时预算已用完，不再生成候选
+            log.warn("[SqlQueryAgent] 耗时预算已用完，不再生成候选SQL");
+            metrics.count("mcp.agent.candidates", Tags.of("datasource", dataSource.getId(), "outcome", "failed"));
+            return Map.of("sql", "", "checkedSql", "", "sqlFromCache", false, "text2SqlAttempts", attempts);
+        }
+        ExecutorCompletionService<Candidate> completion = new ExecutorCompletionService<>(candidateExecutor);
+        List<Future<Candidate>> futures = new ArrayList<>();
+        List<QueryContext> contexts = new ArrayList<>();
+        for (int i = 0; i < properties.getCandidates().getCount(); i++) {
+            String input = userInput + CANDIDATE_HINTS.get(i % CANDIDATE_HINTS.size());
+            // 每条候选使用独立的子上下文，取消落选候选时不影响本次调用
+            QueryContext context = QueryContext.fork(remaining);
+            try {
+                futures.add(completion.submit(() -> context.call(() -> candidate(schema, input, format))));
+                contexts.add(context);
+            } catch (RejectedExecutionException e) {
+                log.warn("[SqlQueryAgent] 候选SQL线程池已满，本轮只生成{}条候选", futures.size());
+                break;
+            }
+        }
+        Candidate winner = null;
+        Candidate oversized = null;
+        Candidate failed = null;
+        try {
+            for (int i = 0; i < futures.size() && winner == null; i++) {
+                Future<Candidate> done = completion.poll(Math.max(0, budgetDeadline(state) - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS);
+                if (done == null) {
+                    log.warn("[SqlQueryAgent] 候选SQL在耗时预算内未完成");
+                    break;
+                }
+                try {
+                    Candidate candidate = done.get();
+                    if (candidate.probe().passed()) {
+                        winner = candidate;
+                    } else if (candidate.probe().oversized()) {
+                        oversized = oversized == null ? candidate : oversized;
+                    } else {
+                        failed = candidate;
+                    }
+                } catch (ExecutionException e) {
+                    log.warn("[SqlQueryAgent] 生成候选SQL失败: {}", e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // 取消其余候选：中断大模型调用并取消执行中的SQL
+            futures.forEach(future -> future.cancel(true));
+            contexts.forEach(QueryContext::cancel);
+        }
+        Candidate chosen = winner != null ? winner : oversized != null ? oversized : failed;
+        metrics.count("mcp.agent.candidates", Tags.of("datasource", dataSource.getId(),
+                "outcome", winner != null ? "passed" : oversized != null ? "oversized" : "failed"));
+        if (chosen == null) {
+            return Map.of("sql", "", "checkedSql", "", "sqlFromCache", false, "text2SqlAttempts", attempts);
+        }
+        log.info("[SqlQueryAgent] text2sql candidate:{}, verdict:{}", chosen.sql(), chosen.probe().verdict());
+        boolean rewritten = !chosen.probe().sql().equals(chosen.sql());
+        Map<String, Object> output = new HashMap<>();
+        output.put("sql", rewritten ? chosen.probe().sql() : chosen.text());
+        output.put("sqlFromCache", false);
+        output.put("sqlRewritten", rewritten);
+        output.put("text2SqlAttempts", attempts);
+        // 预检查节点直接使用候选的检查结果，不再重复执行
+        output.put("checkedSql", chosen.probe().sql());
+        output.put("checkedVerdict", chosen.probe().verdict());
+        if (chosen.probe().passed()) {
+            output.put("probeSql", chosen.probe().sql());
+            output.put("probeResult", chosen.probe().result().content());
+            output.put("probeRows", chosen.probe().result().rowCount());
+        }
+        return output;
+    }
+
+    /**
+     * 生成并预检查一条候选SQL
+     */
+    private Candidate candidate(String schema, String userInput, ResultFormat format) {
+        String text = metrics.recordUnchecked(McpMetrics.LLM, Tags.of("call", "text2SqlCandidate"),
+                () -> new Text2SQL(chatModel).apply(dataSource.getType(), schema, userInput));
+        String sql = getSqlFromCodeBlock(text);
+        return new Candidate(text, sql, probe(sql, format, properties.getCandidates().isExplain()));
     }
 
     /**
-     * SQL预检查
+     * SQL预检查：按行数和字节数上限试探执行，超出上限立即停止读取；
+     * 未超出上限时试探结果就是完整结果，直接交给executeSql使用，避免重复执行
      * @param state
      * @return
      */
     private Map<String,Object> preInspection(AgentState state){
         String sql = (String)state.value("sql").orElseThrow();
         sql = getSqlFromCodeBlock(sql);
+        ResultFormat format = resultFormat(state);
+        if (queryResultCache.get(dataSource.getId(), sql, format.id()).isPresent()) {
+            log.info("[SqlQueryAgent] preInspection hit cache.");
+            return Map.of("preInspection", "continue");
+        }
+        // 并行生成的候选SQL已经检查过，直接使用检查结果
+        if (StringUtils.isNotEmpty(sql) && sql.equals(state.value("checkedSql").orElse(null))) {
+            String verdict = (String) state.value("checkedVerdict").orElseThrow();
+            log.info("[SqlQueryAgent] preInspection checked by candidate:{}", verdict);
+            if ("continue".equals(verdict)) {
+                return Map.of("preInspection", "continue");
+            }
+            return verdict.startsWith("SQL执行失败") ? Map.of("preInspection", verdict)
+                    : Map.of("preInspection", verdict, "oversizedSql", sql);
+        }
+        Probe probe = probe(sql, format, false);
+        log.info("[SqlQueryAgent] preInspection:{}", probe.verdict());
+        if (probe.passed()) {
+            // 本地改写过的SQL替换原SQL，后续执行、缓存和追问都使用改写后的SQL
+            return Map.of("preInspection", "continue",
+                    "sql", probe.sql(),
+                    "sqlRewritten", !probe.sql().equals(sql),
+                    "probeSql", probe.sql(),
+                    "probeResult", probe.result().content(),
+                    "probeRows", probe.result().rowCount());
+        }
+        evictCachedSql(state);
+        return probe.oversized() ? Map.of("preInspection", probe.verdict(), "oversizedSql", sql)
+                : Map.of("preInspection", probe.verdict());
+    }
+
+    /**
+     * 按行数和字节数上限试探执行SQL，超出上限立即停止读取
+     * @param sql SQL语句，可包含多条
+     * @param format 结果格式
+     * @param explain 是否先执行EXPLAIN检查语法和字段
+     * @return 检查结果
+     */
+    private Probe probe(String sql, ResultFormat format, boolean explain) {
+        AgentProperties.PreInspection limits = properties.getPreInspection();
         List<String> sqlList = extractSqlQueries(sql);
-        AbstractJdbcDataSource abstractJdbcDataSource = buildAbstractDataSource(dbConfig);
-        Map<String,Object> sqls = new HashMap<>();
+        if (sqlList.isEmpty()) {
+            return new Probe("SQL执行失败，报错信息：未生成SQL语句", null, false, sql);
+        }
+        Map<String,Object> sqls = new LinkedHashMap<>();
+        List<StreamingResult> probes = new ArrayList<>();
+        List<String> statements = new ArrayList<>();
+        boolean rewritten = false;
         try {
             for (String sqlInfo : sqlList) {
-                Pair<List<String>, List<List<String>>> queryResult = abstractJdbcDataSource.query(sqlInfo);
-                List<Map<String, Object>> convert = convert(queryResult);
-                // 如果数据量过大或者字符串过长
-                if (JSON.toJSONString(convert).length() > 4096) {
-                    sqls.put(sql, "SQL执行结果数据量过大："+JSON.toJSONString(convert).length());
+                if (explain) {
+                    explain(sqlInfo);
                 }
+                StreamingResult probe = streamingQueryExecutor.execute(dataSource, sqlInfo, format,
+                        limits.getMaxRows(), limits.getMaxBytes());
+                // 如果数据量过大或者字符串过长，先在本地改写，改写后仍过大再交给大模型
+                if (probe.truncated()) {
+                    Optional<Pair<String, StreamingResult>> fitted = rewrite(sqlInfo, probe, format);
+                    if (fitted.isPresent()) {
+                        sqlInfo = fitted.get().getKey();
+                        probe = fitted.get().getValue();
+                        rewritten = true;
+                    } else {
+                        sqls.put(sqlInfo, "SQL执行结果数据量过大：超过" + limits.getMaxRows() + "行或"
+                                + limits.getMaxBytes() + "字节");
+                    }
+                }
+                statements.add(sqlInfo);
+                probes.add(probe);
             }
-            log.info("[SqlQueryAgent] preInspection:{}", JSON.toJSONString(sqls));
-            if (sqls.isEmpty()){
-                return Map.of("preInspection", "continue");
-            }else {
-                return Map.of("preInspection", JSON.toJSONString(sqls));
+            if (sqls.isEmpty()) {
+                return new Probe("continue", merge(format, probes), false,
+                        rewritten ? String.join(";\n", statements) + ";" : sql);
             }
-        }catch (Exception e){
-            return Map.of("preInspection", "SQL执行失败，报错信息："+e.getMessage());
+            return new Probe(JSON.toJSONString(sqls), null, true, sql);
+        } catch (Exception e) {
+            return new Probe("SQL执行失败，报错信息：" + e.getMessage(), null, false, sql);
+        }
+    }
+
+    /**
+     * 在本地改写结果过大的单条SQL并重新试探
+     * @return 改写后的SQL和完整结果，无法改写、改写后仍过大或执行失败时为空
+     */
+    private Optional<Pair<String, StreamingResult>> rewrite(String sql, StreamingResult probe, ResultFormat format) {
+        if (sqlRewriter == null) {
+            return Optional.empty();
+        }
+        AgentProperties.PreInspection limits = properties.getPreInspection();
+        Optional<SqlRewriter.Rewrite> rewrite = sqlRewriter.rewrite(sql, dataSource.getType(), probe,
+                limits.getMaxRows(), limits.getMaxBytes());
+        String outcome = "unsupported";
+        try {
+            if (rewrite.isPresent()) {
+                StreamingResult result = streamingQueryExecutor.execute(dataSource, rewrite.get().sql(), format,
+                        limits.getMaxRows(), limits.getMaxBytes());
+                if (!result.truncated()) {
+                    outcome = "fitted";
+                    return Optional.of(Pair.of(rewrite.get().sql(), result));
+                }
+                outcome = "oversized";
+            }
+        } catch (SQLException e) {
+            log.warn("[SqlQueryAgent] 改写后的SQL执行失败: {}", e.getMessage());
+            outcome = "failed";
+        } finally {
+            metrics.count("mcp.agent.rewrite", Tags.of("datasource", dataSource.getId(), "outcome", outcome));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 只生成执行计划，不执行SQL
+     */
+    private void explain(String sql) throws SQLException {
+        String explain = ("oracle".equalsIgnoreCase(dataSource.getType()) ? "EXPLAIN PLAN FOR " : "EXPLAIN ") + sql;
+        queryGovernor.execute(dataSource, 1, statement -> statement.execute(explain));
+    }
+
+    /**
+     * 缓存的SQL未通过预检查时移除，避免下次再命中
+     */
+    private void evictCachedSql(AgentState state) {
+        if (Boolean.TRUE.equals(state.value("sqlFromCache").orElse(false))) {
+            questionSqlCache.invalidate((String) state.value("schemaFingerprint").orElseThrow(),
+                    (String) state.value("question").orElseThrow());
+        }
+    }
+
+    /**
+     * 缓存执行成功的SQL；本地改写过的SQL只返回部分结果，不缓存，避免相同问题直接复用改写后的SQL
+     */
+    private void cacheSql(AgentState state) {
+        String fingerprint = (String) state.value("schemaFingerprint").orElse("");
+        if (StringUtils.isNotEmpty(fingerprint) && !Boolean.TRUE.equals(state.value("sqlRewritten").orElse(false))) {
+            questionSqlCache.put((String) state.value("tableSet").orElseThrow(), fingerprint,
+                    (String) state.value("question").orElseThrow(), (String) state.value("sql").orElseThrow());
         }
     }
 
@@ -162,29 +578,76 @@ public class SqlQueryAgent implements AgentNode{
     private Map<String, Object> executeSql(AgentState state) {
         String sql = (String)state.value("sql").orElseThrow();
         sql = getSqlFromCodeBlock(sql);
+        // 相同的只读SQL直接使用缓存结果，不占用连接池
+        ResultFormat format = resultFormat(state);
+        Optional<StreamingResult> cached = queryResultCache.get(dataSource.getId(), sql, format.id());
+        if (cached.isPresent()) {
+            log.info("[SqlQueryAgent] queryResult hit cache, rows:{}", cached.get().rowCount());
+            return completed(state, sql, cached.get());
+        }
+        // 预检查已经读取了完整结果
+        String probeSql = getSqlFromCodeBlock((String) state.value("probeSql").orElse(null));
+        if (StringUtils.isNotEmpty(sql) && sql.equals(probeSql)) {
+            String content = (String) state.value("probeResult").orElseThrow();
+            int rows = (Integer) state.value("probeRows").orElse(0);
+            log.info("[SqlQueryAgent] queryResult from preInspection:{}", content);
+            StreamingResult result = new StreamingResult(content, rows, rows,
+                    content.getBytes(StandardCharsets.UTF_8).length, false);
+            queryResultCache.put(dataSource.getId(), sql, format.id(), result);
+            return completed(state, sql, result);
+        }
         List<String> sqlList = extractSqlQueries(sql);
-        AbstractJdbcDataSource abstractJdbcDataSource = buildAbstractDataSource(dbConfig);
-        List<Map<String, Object>> result = new ArrayList<>();
+        List<StreamingResult> results = new ArrayList<>();
         try {
+            AgentProperties.PreInspection limits = properties.getPreInspection();
             for (String sqlInfo : sqlList) {
-                Pair<List<String>, List<List<String>>> queryResult = abstractJdbcDataSource.query(sqlInfo);
-                List<Map<String, Object>> convert = convert(queryResult);
-                result.addAll(convert);
+                results.add(streamingQueryExecutor.execute(dataSource, sqlInfo, format,
+                        limits.getMaxRows(), limits.getMaxBytes()));
             }
-            log.info("[SqlQueryAgent] queryResult:{}", JSON.toJSONString(result));
-            return Map.of(FINAL_RESPONSE, JSON.toJSONString(result));
+            StreamingResult result = merge(format, results);
+            log.info("[SqlQueryAgent] queryResult:{}", result.content());
+            queryResultCache.put(dataSource.getId(), sql, format.id(), result);
+            return completed(state, sql, result);
         }catch (Exception e){
             return Map.of(FINAL_RESPONSE, "SQL执行失败，报错信息："+e.getMessage());
         }
     }
 
+    /**
+     * SQL执行成功：记录指标、缓存SQL，并保存本次问题和SQL供同一会话的追问使用
+     */
+    private Map<String, Object> completed(AgentState state, String sql, StreamingResult result) {
+        recordResult(result);
+        cacheSql(state);
+        return Map.of(FINAL_RESPONSE, result.content(), "resultRows", result.rowCount(),
+                "executedSql", sql, "resultTruncated", result.truncated(),
+                "lastQuestion", state.value("question").orElseThrow(), "lastSql", sql);
+    }
+
+    private void recordResult(StreamingResult result) {
+        metrics.result(McpMetrics.AGENT_NODE, Tags.of("node", "executeSql", "datasource", dataSource.getId()),
+                result.rowCount(), result.bytes(), result.truncated());
+    }
+
+    /**
+     * 结果格式：优先使用调用方指定的格式，否则使用配置的格式
+     */
+    private ResultFormat resultFormat(AgentState state) {
+        return ResultFormat.parse((String) state.value("resultFormat").orElse(null), properties.getResultFormat());
+    }
+
     public String isPreInspectionPass(AgentState state) {
         String preInspection = (String) state.value("preInspection").orElseThrow();
         if ("continue".equals(preInspection)) {
             log.info("[SqlQueryAgent] preInspection passed. Next step is <executeSql>.");
             return "executeSql";
         }
+        if (budgetExhausted(state)) {
+            return "fallback";
+        }
         log.warn("[SqlQueryAgent] preInspection not passed,Agent continue...");
+        metrics.count("mcp.agent.text2sql.retries", Tags.of("datasource", dataSource.getId(),
+                "reason", preInspection.startsWith("SQL执行失败") ? "failed" : "oversized"));
         return "text2Sql";
     }
 
@@ -192,45 +655,198 @@ public class SqlQueryAgent implements AgentNode{
         String result = (String) state.value(FINAL_RESPONSE).orElseThrow();
         if (StringUtils.isNotBlank(result)) {
             log.info("[SqlQueryAgent] exist result. Next step is <END>.");
+            metrics.summary("mcp.agent.text2sql.attempts", Tags.of("datasource", dataSource.getId()),
+                    (Integer) state.value("text2SqlAttempts").orElse(1));
             return "end";
         }
+        if (budgetExhausted(state)) {
+            return "fallback";
+        }
         log.warn("[SqlQueryAgent] No result,Agent continue...");
+        metrics.count("mcp.agent.text2sql.retries", Tags.of("datasource", dataSource.getId(), "reason", "empty"));
         return "continue";
     }
 
+    /**
+     * 生成SQL的轮数或总耗时已达到预算
+     */
+    private boolean budgetExhausted(AgentState state) {
+        int attempts = (Integer) state.value("text2SqlAttempts").orElse(1);
+        if (attempts >= properties.getBudget().getMaxAttempts() || System.currentTimeMillis() >= budgetDeadline(state)) {
+            log.warn("[SqlQueryAgent] 已生成SQL{}次，达到次数或耗时上限", attempts);
+            return true;
+        }
+        return false;
+    }
+
+    private long budgetDeadline(AgentState state) {
+        long startedAt = (Long) state.value("startedAt").orElse(System.currentTimeMillis());
+        return startedAt + properties.getBudget().getMaxLatency().toMillis();
+    }
+
+    /**
+     * 预算用尽时的兜底：有结果过大的SQL时返回按上限截断的结果，否则返回最后一次的失败原因
+     * @param state
+     * @return
+     */
+    private Map<String, Object> fallback(AgentState state) {
+        int attempts = (Integer) state.value("text2SqlAttempts").orElse(1);
+        metrics.summary("mcp.agent.text2sql.attempts", Tags.of("datasource", dataSource.getId()), attempts);
+        String oversizedSql = (String) state.value("oversizedSql").orElse("");
+        if (StringUtils.isNotEmpty(oversizedSql)) {
+            ResultFormat format = resultFormat(state);
+            AgentProperties.PreInspection limits = properties.getPreInspection();
+            try {
+                List<StreamingResult> results = new ArrayList<>();
+                for (String sqlInfo : extractSqlQueries(oversizedSql)) {
+                    results.add(streamingQueryExecutor.execute(dataSource, sqlInfo, format,
+                            limits.getMaxRows(), limits.getMaxBytes()));
+                }
+                StreamingResult result = merge(format, results);
+                log.info("[SqlQueryAgent] fallback to truncated result, rows:{}", result.rowCount());
+                recordResult(result);
+                metrics.count("mcp.agent.fallback", Tags.of("datasource", dataSource.getId(), "outcome", "truncated"));
+                return Map.of(FINAL_RESPONSE, result.content(), "resultRows", result.rowCount(), "sql", oversizedSql,
+                        "executedSql", oversizedSql, "resultTruncated", result.truncated());
+            } catch (Exception e) {
+                log.warn("[SqlQueryAgent] fallback failed: {}", e.getMessage());
+            }
+        }
+        metrics.count("mcp.agent.fallback", Tags.of("datasource", dataSource.getId(), "outcome", "failed"));
+        String reason = (String) state.value("preInspection").orElse("");
+        if ("continue".equals(reason)) {
+            return Map.of(FINAL_RESPONSE, "在" + attempts + "次尝试内未查询到符合条件的数据");
+        }
+        return Map.of(FINAL_RESPONSE, "在" + attempts + "次尝试内未能生成可执行的SQL"
+                + (reason.isEmpty() ? "" : "，最后一次的失败原因：" + reason));
+    }
+
+    /**
+     * 智能体的输入，同时重置上一次运行留在会话状态中的逐题状态
+     * @param question 用户问题
+     * @param format 结果格式，为空时使用配置的格式
+     * @param coldRun 是否忽略会话状态，重新选表
+     * @return 输入状态
+     */
+    public static Map<String, Object> inputs(String question, String format, boolean coldRun) {
+        Map<String, Object> inputs = new HashMap<>();
+        inputs.put("question", question);
+        inputs.put("resultFormat", format == null ? "" : format);
+        inputs.put("coldRun", coldRun);
+        inputs.put("preInspection", "");
+        inputs.put("probeSql", "");
+        inputs.put("sqlFromCache", false);
+        inputs.put("sqlRewritten", false);
+        inputs.put("text2SqlAttempts", 0);
+        inputs.put("checkedSql", "");
+        inputs.put("oversizedSql", "");
+        inputs.put("startedAt", System.currentTimeMillis());
+        inputs.put("resultRows", 0);
+        inputs.put("executedSql", "");
+        inputs.put("resultTruncated", false);
+        inputs.put(FINAL_RESPONSE, "");
+        return inputs;
+    }
+
+    /**
+     * 入口路由：同一会话已选定过表，且新问题仍然针对这些表时跳过选表和获取表结构，按新问题重新编码表结构后生成SQL
+     */
+    public String routeStart(AgentState state) {
+        String targetTables = (String) state.value("targetTables").orElse("");
+        if (Boolean.TRUE.equals(state.value("coldRun").orElse(false))
+                || StringUtils.isEmpty(targetTables) || state.value("schema").isEmpty()) {
+            return "listTables";
+        }
+        String question = (String) state.value("question").orElseThrow();
+        List<String> relevant = tableRetriever.relevantTables(dataSource, schemaCatalog.getAllTableInfo(dataSource),
+                question, 1);
+        // 问题中没有命中任何表的词（如“按月份拆分呢”）视为追问；最相关的表不在已选表中时重新选表
+        if (relevant.isEmpty() || List.of(targetTables.split(",")).contains(relevant.get(0))) {
+            log.info("[SqlQueryAgent] reuse session tables:{}", targetTables);
+            metrics.count("mcp.agent.session.reuse", Tags.of("datasource", dataSource.getId()));
+            return "reuseSchema";
+        }
+        return "listTables";
+    }
+
     @Override
     public StateGraph<AgentState> buildGraph() throws Exception {
         return new StateGraph<>(new LC4jStateSerializer<>(AgentState::new))
-                .addNode("listTables", node_async(this::listTables))
-                .addNode("getTableSchema", node_async(this::getTableSchema))
-                .addNode("text2Sql", node_async(this::text2Sql))
-                .addNode("preInspection", node_async(this::preInspection))
-                .addNode("executeSql", node_async(this::executeSql))
-                .addEdge(START, "listTables")
+                .addNode("listTables", node_async(timed("listTables", this::listTables)))
+                .addNode("getTableSchema", node_async(timed("getTableSchema", this::getTableSchema)))
+                .addNode("reuseSchema", node_async(timed("reuseSchema", this::reuseSchema)))
+                .addNode("text2Sql", node_async(timed("text2Sql", this::text2Sql)))
+                .addNode("preInspection", node_async(timed("preInspection", this::preInspection)))
+                .addNode("executeSql", node_async(timed("executeSql", this::executeSql)))
+                .addNode("fallback", node_async(timed("fallback", this::fallback)))
+                .addConditionalEdges(START,
+                        edge_async(this::routeStart),
+                        Map.of("listTables", "listTables", "reuseSchema", "reuseSchema")
+                )
                 .addEdge("listTables", "getTableSchema")
                 .addEdge("getTableSchema", "text2Sql")
+                .addEdge("reuseSchema", "text2Sql")
                 .addEdge("text2Sql", "preInspection")
                 .addConditionalEdges("preInspection",
                         edge_async(this::isPreInspectionPass),
-                        Map.of("executeSql","executeSql","text2Sql","text2Sql")
+                        Map.of("executeSql","executeSql","text2Sql","text2Sql","fallback","fallback")
                 )
                 .addConditionalEdges("executeSql",
                         edge_async(this::isDataExist),
-                        Map.of("continue", "text2Sql", "end", END)
-                );
+                        Map.of("continue", "text2Sql", "end", END, "fallback", "fallback")
+                )
+                .addEdge("fallback", END);
+    }
+
+    /**
+     * 记录节点耗时和异常，按节点和数据源区分
+     */
+    private NodeAction<AgentState> timed(String node, NodeAction<AgentState> action) {
+        Tags tags = Tags.of("node", node, "datasource", dataSource.getId());
+        return state -> metrics.record(McpMetrics.AGENT_NODE, tags, () -> action.apply(state));
+    }
+
+    @Override
+    public void close() {
+        schemaExecutor.shutdownNow();
+        if (candidateExecutor != null) {
+            candidateExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 候选SQL：大模型的原始输出、提取出的SQL和预检查结果
+     */
+    private record Candidate(String text, String sql, Probe probe) {
     }
 
-    private AbstractJdbcDataSource buildAbstractDataSource(String dbConfig){
-        DatabaseAdapter adapter = DatabaseAdapter.getAdapter();
-        adapter.setConfig(dbConfig);
-        return  (AbstractJdbcDataSource) adapter.getDataSource();
+    /**
+     * 预检查结果
+     * @param verdict 通过时为 continue，否则为失败或结果过大的原因
+     * @param result 通过时的完整结果
+     * @param oversized 是否因结果过大未通过
+     * @param sql 检查的SQL，本地改写后通过时为改写后的SQL
+     */
+    private record Probe(String verdict, StreamingResult result, boolean oversized, String sql) {
+
+        boolean passed() {
+            return result != null;
+        }
     }
 
-    private Pair<List<String>, List<List<String>>> getSampleData(AbstractJdbcDataSource abstractJdbcDataSource,String tableName){
-        //AbstractJdbcDataSource abstractJdbcDataSource = buildAbstractDataSource();
-        return abstractJdbcDataSource.query("select * from " + tableName + " limit 3;");
+    private Pair<List<String>, List<List<String>>> getSampleData(String tableName){
+        try {
+            // 不拼接LIMIT等方言语法，由驱动的maxRows限制行数，各数据库通用
+            return queryGovernor.query(dataSource, "select * from " + tableName, 3);
+        } catch (SQLException e) {
+            throw new IllegalStateException("获取表[" + tableName + "]的样例数据失败: " + e.getMessage(), e);
+        }
     }
 
+    /**
+     * 从代码块中提取SQL，结果去除首尾空白；对已提取的SQL再次调用结果不变，
+     * 预检查和执行节点各自提取后可以直接比较
+     */
     public String getSqlFromCodeBlock(String input) {
         if (input == null || input.isEmpty()) {
             return input;
@@ -242,13 +858,53 @@ public class SqlQueryAgent implements AgentNode{
             Pattern pattern = Pattern.compile("```sql\\n(.*?)\\n```", Pattern.DOTALL);
             Matcher matcher = pattern.matcher(input);
             if (matcher.find()) {
-                result = matcher.group(1);
+                result = matcher.group(1).trim();
             }
         }
         return result;
     }
 
-    private static List<Map<String, Object>> convert(Pair<List<String>, List<List<String>>> pair) {
+    /**
+     * 合并多条SQL的结果：records格式合并为一个数组，与逐条执行后addAll的结果一致；其他格式按语句分段
+     */
+    private static StreamingResult merge(ResultFormat format, List<StreamingResult> results) {
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+        StringBuilder content = new StringBuilder();
+        int rows = 0;
+        int rowsSeen = 0;
+        boolean truncated = false;
+        if (format == ResultFormat.RECORDS) {
+            content.append('[');
+        }
+        for (StreamingResult result : results) {
+            if (format == ResultFormat.RECORDS) {
+                if (result.rowCount() > 0) {
+                    if (rows > 0) {
+                        content.append(',');
+                    }
+                    // 去掉每条结果外层的 [ ]
+                    content.append(result.content(), 1, result.content().length() - 1);
+                }
+            } else {
+                if (!content.isEmpty()) {
+                    content.append("\n\n");
+                }
+                content.append(result.content());
+            }
+            rows += result.rowCount();
+            rowsSeen += result.rowsSeen();
+            truncated |= result.truncated();
+        }
+        if (format == ResultFormat.RECORDS) {
+            content.append(']');
+        }
+        String merged = content.toString();
+        return new StreamingResult(merged, rows, rowsSeen, merged.getBytes(StandardCharsets.UTF_8).length, truncated);
+    }
+
+    public static List<Map<String, Object>> convert(Pair<List<String>, List<List<String>>> pair) {
         List<String> headers = pair.getKey();
         List<List<String>> rows = pair.getValue();
         List<Map<String, Object>> result = new ArrayList<>();
@@ -264,7 +920,7 @@ public class SqlQueryAgent implements AgentNode{
         return result;
     }
 
-    private static List<String> extractSqlQueries(String input) {
+    public static List<String> extractSqlQueries(String input) {
         List<String> queries = new ArrayList<>();
         StringBuilder currentQuery = new StringBuilder();
         boolean insideBlockComment = false;
@@ -0,0 +1,129 @@
+package cn.daydayup.dev.mcpserverplus.agent;
+
+import cn.daydayup.dev.mcpcommon.datasource.DataSourceRouter;
+import cn.daydayup.dev.mcpserverplus.cache.SessionCheckpointSaver;
+import org.apache.commons.lang3.StringUtils;
+import org.bsc.langgraph4j.CompileConfig;
+import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.NodeOutput;
+import org.bsc.langgraph4j.state.AgentState;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * @ClassName SqlQueryAgentGraphs
+ * @Description 每个数据源一个问数智能体图，智能体的线程池和数据库访问按数据源隔离；
+ * 按数据源和会话保存检查点，同一会话的追问复用已选定的表和表结构；会话ID由服务端生成，同一会话同时只允许一个调用
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 21:00
+ * @Version 1.0
+ */
+public class SqlQueryAgentGraphs implements AutoCloseable {
+
+    private final DataSourceRouter dataSourceRouter;
+
+    private final SessionCheckpointSaver checkpointSaver;
+
+    private final boolean sessionEnabled;
+
+    private final Map<String, SqlQueryAgent> agents = new LinkedHashMap<>();
+
+    private final Map<String, CompiledGraph<AgentState>> graphs = new LinkedHashMap<>();
+
+    /**
+     * 执行中的线程ID，同一会话的并发调用会交错写入检查点，直接拒绝
+     */
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    public SqlQueryAgentGraphs(DataSourceRouter dataSourceRouter, SessionCheckpointSaver checkpointSaver,
+                               boolean sessionEnabled) {
+        this.dataSourceRouter = dataSourceRouter;
+        this.checkpointSaver = checkpointSaver;
+        this.sessionEnabled = sessionEnabled;
+    }
+
+    /**
+     * 添加数据源对应的智能体并编译图
+     * @param datasource 数据源名称
+     * @param agent 绑定该数据源的智能体
+     */
+    public void add(String datasource, SqlQueryAgent agent) throws Exception {
+        agents.put(datasource, agent);
+        graphs.put(datasource, agent.buildGraph().compile(CompileConfig.builder()
+                .checkpointSaver(checkpointSaver)
+                .build()));
+    }
+
+    /**
+     * 获取数据源对应的智能体图
+     * @param datasource 数据源名称，为空时使用默认数据源
+     * @return 编译后的智能体图
+     */
+    public CompiledGraph<AgentState> graph(String datasource) {
+        return graphs.get(dataSourceRouter.resolve(datasource).getId());
+    }
+
+    /**
+     * 流式运行智能体
+     * @param datasource 数据源名称，为空时使用默认数据源
+     * @param sessionId 上一次运行返回的会话ID，为空时创建新会话
+     * @param inputs 智能体输入
+     * @param listener 每个节点完成后回调
+     * @return 最终状态和会话ID，未启用会话时会话ID为null
+     */
+    public Run run(String datasource, String sessionId, Map<String, Object> inputs,
+                   Consumer<NodeOutput<AgentState>> listener) {
+        String name = dataSourceRouter.resolve(datasource).getId();
+        String session = null;
+        if (sessionEnabled) {
+            // 只接受服务端创建的会话ID，调用方无法通过猜测或自定义ID读取其他人的会话状态
+            session = StringUtils.isBlank(sessionId) ? checkpointSaver.open(name) : sessionId.trim();
+            if (!checkpointSaver.exists(name + "/" + session)) {
+                throw new IllegalArgumentException("会话不存在或已过期: " + sessionId + "，不传sessionId即可开始新会话");
+            }
+        }
+        // 未启用会话时使用一次性的线程ID，运行结束后立即释放
+        String threadId = name + "/" + (session != null ? session : "once-" + UUID.randomUUID());
+        if (!running.add(threadId)) {
+            throw new IllegalStateException("会话正在处理上一个问题，请等待完成后再追问");
+        }
+        try {
+            AgentState finalState = null;
+            for (NodeOutput<AgentState> output : graphs.get(name).stream(inputs, checkpointSaver.config(threadId))) {
+                finalState = output.state();
+                listener.accept(output);
+            }
+            if (finalState == null) {
+                throw new IllegalStateException("智能体未返回结果");
+            }
+            return new Run(finalState, session);
+        } finally {
+            running.remove(threadId);
+            if (session == null) {
+                checkpointSaver.end(threadId);
+            }
+        }
+    }
+
+    public List<String> datasources() {
+        return List.copyOf(graphs.keySet());
+    }
+
+    @Override
+    public void close() {
+        agents.values().forEach(SqlQueryAgent::close);
+    }
+
+    /**
+     * 一次运行的结果
+     * @param state 最终状态
+     * @param sessionId 会话ID，追问时传回
+     */
+    public record Run(AgentState state, String sessionId) {
+    }
+}
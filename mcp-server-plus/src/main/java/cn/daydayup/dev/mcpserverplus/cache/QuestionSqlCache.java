@@ -0,0 +1,307 @@
+package cn.daydayup.dev.mcpserverplus.cache;
+
+import cn.daydayup.dev.mcpserverplus.config.AgentProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import lombok.extern.slf4j.Slf4j;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @ClassName QuestionSqlCache
+ * @Description 问题到SQL的缓存，按所选表结构指纹隔离；先精确匹配，再按MinHash估算的字符二元组相似度匹配
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 17:20
+ * @Version 1.0
+ */
+@Slf4j
+public class QuestionSqlCache {
+
+    private static final long PRIME = 2147483647L;
+
+    private final AgentProperties.SqlCache properties;
+
+    /**
+     * 相似匹配时忽略的虚词，如“各月”和“每月”视为同一问题；按长度倒序，先匹配多字词
+     */
+    private final List<String> stopWords;
+
+    private final long[] hashA;
+    private final long[] hashB;
+
+    private final Cache<ExactKey, Entry> entries;
+
+    /**
+     * 表结构指纹 + 内容字集合 -> 候选条目，相似匹配只在同一分组内比较
+     */
+    private final Map<GroupKey, Set<ExactKey>> groups = new ConcurrentHashMap<>();
+
+    /**
+     * 所选表集合 -> 当前的表结构指纹，指纹变化时旧指纹下的条目全部失效
+     */
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+
+    private final LongAdder exactHits = new LongAdder();
+    private final LongAdder similarHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 问题中保留的比较运算符和正负号，“同比>5%”和“同比<-5%”是不同的问题
+     */
+    private static final String OPERATORS = "<>=!+-%≥≤≠";
+
+    public QuestionSqlCache(AgentProperties.SqlCache properties) {
+        this(properties, Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    QuestionSqlCache(AgentProperties.SqlCache properties, Ticker ticker, Executor executor) {
+        this.properties = properties;
+        this.stopWords = properties.getStopWords().stream()
+                .filter(word -> word != null && !word.isEmpty())
+                .map(QuestionSqlCache::normalize)
+                .sorted(Comparator.comparingInt(String::length).reversed())
+                .toList();
+        Random random = new Random(42);
+        int hashes = properties.getMinHashes();
+        this.hashA = new long[hashes];
+        this.hashB = new long[hashes];
+        for (int i = 0; i < hashes; i++) {
+            hashA[i] = 1 + random.nextInt(Integer.MAX_VALUE - 1);
+            hashB[i] = random.nextInt(Integer.MAX_VALUE);
+        }
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxEntries())
+                .expireAfterWrite(properties.getTtl())
+                .ticker(ticker)
+                .executor(executor)
+                .removalListener((ExactKey key, Entry value, RemovalCause cause) -> {
+                    // 过期通知是异步的，可能晚于同一个key的新写入，只在缓存中已没有该key时删除分组索引
+                    if (key != null && value != null && cause != RemovalCause.REPLACED) {
+                        unindexIfAbsent(key, value.group());
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 查询缓存的SQL
+     * @param tableSet 所选表集合（数据源ID + 排序后的表名）
+     * @param fingerprint 所选表的结构指纹
+     * @param question 用户问题
+     * @return 缓存的SQL
+     */
+    public Optional<String> get(String tableSet, String fingerprint, String question) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        checkFingerprint(tableSet, fingerprint);
+        String normalized = normalize(question);
+        Entry exact = entries.getIfPresent(new ExactKey(fingerprint, normalized));
+        if (exact != null) {
+            exactHits.increment();
+            return Optional.of(exact.sql());
+        }
+        Set<ExactKey> group = groups.get(new GroupKey(fingerprint, contentKey(normalized)));
+        if (group != null) {
+            int[] signature = signature(normalized);
+            Entry best = null;
+            double bestSimilarity = properties.getSimilarityThreshold();
+            for (ExactKey key : group) {
+                Entry entry = entries.getIfPresent(key);
+                if (entry == null) {
+                    continue;
+                }
+                double similarity = similarity(signature, entry.signature());
+                if (similarity >= bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+            if (best != null) {
+                similarHits.increment();
+                log.info("[QuestionSqlCache] 问题[{}]与缓存问题[{}]相似度{}", question, best.question(), bestSimilarity);
+                return Optional.of(best.sql());
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * 缓存执行成功的SQL
+     */
+    public void put(String tableSet, String fingerprint, String question, String sql) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        checkFingerprint(tableSet, fingerprint);
+        String normalized = normalize(question);
+        ExactKey key = new ExactKey(fingerprint, normalized);
+        GroupKey group = new GroupKey(fingerprint, contentKey(normalized));
+        Entry entry = new Entry(question, sql, group, signature(normalized));
+        // 建分组索引和写入在同一个key的compute中完成，与移除通知中的删除索引互斥
+        entries.asMap().compute(key, (k, previous) -> {
+            groups.compute(group, (g, keys) -> {
+                Set<ExactKey> indexed = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+                indexed.add(k);
+                return indexed;
+            });
+            return entry;
+        });
+    }
+
+    /**
+     * 移除问题对应的SQL，用于缓存的SQL未通过预检查的情况
+     */
+    public void invalidate(String fingerprint, String question) {
+        entries.invalidate(new ExactKey(fingerprint, normalize(question)));
+    }
+
+    /**
+     * 缓存统计
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", properties.isEnabled());
+        result.put("exactHits", exactHits.sum());
+        result.put("similarHits", similarHits.sum());
+        result.put("misses", misses.sum());
+        result.put("size", entries.estimatedSize());
+        result.put("groups", groups.size());
+        return result;
+    }
+
+    /**
+     * 缓存中已没有该key时从分组中删除，分组为空时一并删除；在compute中执行，与写入互斥
+     */
+    private void unindexIfAbsent(ExactKey key, GroupKey group) {
+        entries.asMap().compute(key, (k, current) -> {
+            if (current == null) {
+                groups.computeIfPresent(group, (g, keys) -> {
+                    keys.remove(k);
+                    return keys.isEmpty() ? null : keys;
+                });
+            }
+            return current;
+        });
+    }
+
+    private void checkFingerprint(String tableSet, String fingerprint) {
+        String previous = fingerprints.put(tableSet, fingerprint);
+        if (previous != null && !previous.equals(fingerprint)) {
+            List<ExactKey> stale = new ArrayList<>();
+            entries.asMap().keySet().forEach(key -> {
+                if (key.fingerprint().equals(previous)) {
+                    stale.add(key);
+                }
+            });
+            entries.invalidateAll(stale);
+            log.info("[QuestionSqlCache] 表结构已变化，失效{}条缓存", stale.size());
+        }
+    }
+
+    /**
+     * 问题规范化：全半角统一、小写，只保留文字、数字、比较运算符、正负号和数字中的小数点
+     */
+    static String normalize(String question) {
+        String normalized = Normalizer.normalize(question == null ? "" : question, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT);
+        StringBuilder builder = new StringBuilder(normalized.length());
+        for (int i = 0; i < normalized.length(); ) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            boolean decimalPoint = codePoint == '.' && !builder.isEmpty()
+                    && Character.isDigit(builder.charAt(builder.length() - 1))
+                    && i < normalized.length() && Character.isDigit(normalized.charAt(i));
+            if (Character.isLetterOrDigit(codePoint) || OPERATORS.indexOf(codePoint) >= 0 || decimalPoint) {
+                builder.appendCodePoint(codePoint);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 内容字集合：去掉虚词后的字和完整数字。集合不同的问题（如年份、地区、最多和最少不同）一定不会命中
+     */
+    String contentKey(String normalized) {
+        // 虚词整体替换为空格，空格只用于断开数字，不计入内容
+        String text = normalized;
+        for (String word : stopWords) {
+            text = text.replace(word, " ");
+        }
+        Set<String> content = new TreeSet<>();
+        StringBuilder number = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isDigit(codePoint) || (codePoint == '.' && !number.isEmpty())) {
+                number.appendCodePoint(codePoint);
+                continue;
+            }
+            if (!number.isEmpty()) {
+                content.add(number.toString());
+                number.setLength(0);
+            }
+            if (codePoint != ' ') {
+                content.add(new String(Character.toChars(codePoint)));
+            }
+        }
+        if (!number.isEmpty()) {
+            content.add(number.toString());
+        }
+        return String.join("|", content);
+    }
+
+    private int[] signature(String normalized) {
+        int[] signature = new int[hashA.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int length = normalized.length();
+        for (int i = 0; i < Math.max(1, length - 1); i++) {
+            String shingle = normalized.substring(i, Math.min(length, i + 2));
+            long shingleHash = shingle.hashCode() & 0xffffffffL;
+            for (int h = 0; h < hashA.length; h++) {
+                int value = (int) ((hashA[h] * shingleHash + hashB[h]) % PRIME);
+                if (value < signature[h]) {
+                    signature[h] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static double similarity(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return (double) same / a.length;
+    }
+
+    private record ExactKey(String fingerprint, String question) {
+    }
+
+    private record GroupKey(String fingerprint, String contentKey) {
+    }
+
+    private record Entry(String question, String sql, GroupKey group, int[] signature) {
+    }
+}
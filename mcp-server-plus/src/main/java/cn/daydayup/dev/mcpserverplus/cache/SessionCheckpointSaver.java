@@ -0,0 +1,148 @@
+package cn.daydayup.dev.mcpserverplus.cache;
+
+import cn.daydayup.dev.mcpserverplus.config.AgentProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+import org.bsc.langgraph4j.checkpoint.MemorySaver;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @ClassName SessionCheckpointSaver
+ * @Description 按会话保存智能体检查点：每个会话只保留最近的几个检查点且不保存结果数据，会话数有上限，空闲会话到期后释放
+ * @Author ZhaoYanNing
+ * @Date 2026/10/18 9:30
+ * @Version 1.0
+ */
+@Slf4j
+public class SessionCheckpointSaver extends MemorySaver {
+
+    private final AgentProperties.Session properties;
+
+    /**
+     * 不保存到检查点中的状态字段，如查询结果，会话占用的内存只取决于表结构等追问需要的状态
+     */
+    private final Set<String> transientKeys;
+
+    /**
+     * 线程ID（数据源/会话ID）-> 最近使用时间，淘汰时释放该会话的检查点
+     */
+    private final Cache<String, Long> sessions;
+
+    private final LongAdder evictions = new LongAdder();
+
+    public SessionCheckpointSaver(AgentProperties.Session properties, Set<String> transientKeys) {
+        this.properties = properties;
+        this.transientKeys = Set.copyOf(transientKeys);
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSessions())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .removalListener((String threadId, Long value, RemovalCause cause) -> {
+                    if (threadId != null && cause != RemovalCause.REPLACED) {
+                        if (cause.wasEvicted()) {
+                            evictions.increment();
+                        }
+                        release(threadId);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 创建会话，会话ID由服务端随机生成，调用方只能继续自己拿到的会话
+     * @param prefix 线程ID前缀（数据源）
+     * @return 会话ID
+     */
+    public String open(String prefix) {
+        String sessionId = UUID.randomUUID().toString();
+        sessions.put(prefix + "/" + sessionId, System.currentTimeMillis());
+        return sessionId;
+    }
+
+    /**
+     * 会话是否由服务端创建且尚未过期
+     * @param threadId 线程ID
+     */
+    public boolean exists(String threadId) {
+        return sessions.getIfPresent(threadId) != null;
+    }
+
+    /**
+     * 会话的运行配置，同时刷新会话的最近使用时间
+     * @param threadId 线程ID
+     * @return 运行配置
+     */
+    public RunnableConfig config(String threadId) {
+        sessions.put(threadId, System.currentTimeMillis());
+        return RunnableConfig.builder().threadId(threadId).build();
+    }
+
+    /**
+     * 结束会话并释放检查点
+     * @param threadId 线程ID
+     */
+    public void end(String threadId) {
+        sessions.invalidate(threadId);
+    }
+
+    /**
+     * 会话数和淘汰次数
+     */
+    public Map<String, Object> stats() {
+        sessions.cleanUp();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", sessions.estimatedSize());
+        stats.put("maxSessions", properties.getMaxSessions());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    /**
+     * 新检查点插入在链表头部，只保留最近的几个，并去掉其中的结果数据
+     */
+    @Override
+    protected void insertedCheckpoint(RunnableConfig config, LinkedList<Checkpoint> checkpoints,
+                                      Checkpoint checkpoint) throws Exception {
+        while (checkpoints.size() > properties.getMaxCheckpoints()) {
+            checkpoints.removeLast();
+        }
+        for (ListIterator<Checkpoint> iterator = checkpoints.listIterator(); iterator.hasNext(); ) {
+            iterator.set(withoutTransientState(iterator.next()));
+        }
+    }
+
+    /**
+     * 去掉检查点中的结果数据，运行中的状态不受影响，下一次运行开始时这些字段会重新生成
+     */
+    Checkpoint withoutTransientState(Checkpoint checkpoint) {
+        if (transientKeys.stream().noneMatch(checkpoint.getState()::containsKey)) {
+            return checkpoint;
+        }
+        Map<String, Object> state = new HashMap<>(checkpoint.getState());
+        state.keySet().removeAll(transientKeys);
+        return Checkpoint.builder()
+                .id(checkpoint.getId())
+                .nodeId(checkpoint.getNodeId())
+                .nextNodeId(checkpoint.getNextNodeId())
+                .state(state)
+                .build();
+    }
+
+    private void release(String threadId) {
+        try {
+            release(RunnableConfig.builder().threadId(threadId).build());
+        } catch (Exception e) {
+            log.warn("释放会话[{}]的检查点失败: {}", threadId, e.getMessage());
+        }
+    }
+}
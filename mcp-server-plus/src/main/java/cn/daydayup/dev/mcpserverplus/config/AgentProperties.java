@@ -0,0 +1,278 @@
+package cn.daydayup.dev.mcpserverplus.config;
+
+import cn.daydayup.dev.mcpcommon.query.ResultFormat;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @ClassName AgentProperties
+ * @Description 数据库查询智能体配置
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 16:10
+ * @Version 1.0
+ */
+@Data
+@ConfigurationProperties(prefix = "mcp.agent")
+public class AgentProperties {
+
+    /**
+     * 智能体返回的查询结果格式
+     */
+    private ResultFormat resultFormat = ResultFormat.RECORDS;
+
+    /**
+     * SQL预检查
+     */
+    private PreInspection preInspection = new PreInspection();
+
+    /**
+     * 单张表的结构和样例数据查询超时时间（毫秒），超时的表不提供样例数据
+     */
+    private long schemaTimeoutMs = 5000;
+
+    /**
+     * 候选表检索
+     */
+    private Retrieval retrieval = new Retrieval();
+
+    /**
+     * 问题到SQL的缓存
+     */
+    private SqlCache sqlCache = new SqlCache();
+
+    /**
+     * 表结构提示词
+     */
+    private SchemaPrompt schemaPrompt = new SchemaPrompt();
+
+    /**
+     * 结果过大时在本地改写SQL
+     */
+    private Rewrite rewrite = new Rewrite();
+
+    /**
+     * 一次问答生成SQL的次数和耗时预算
+     */
+    private Budget budget = new Budget();
+
+    /**
+     * 并行生成候选SQL
+     */
+    private Candidates candidates = new Candidates();
+
+    /**
+     * 会话状态复用
+     */
+    private Session session = new Session();
+
+    @Data
+    public static class PreInspection {
+
+        /**
+         * 预检查最多读取的行数，超过即视为结果过大
+         */
+        private int maxRows = 500;
+
+        /**
+         * 预检查结果的字节数上限（UTF-8），超过即视为结果过大
+         */
+        private long maxBytes = 8192;
+    }
+
+    @Data
+    public static class Retrieval {
+
+        /**
+         * 是否在确定目标表之前按问题检索候选表
+         */
+        private boolean enabled = true;
+
+        /**
+         * 交给大模型选择的候选表数量
+         */
+        private int topK = 20;
+
+        /**
+         * 表数量不超过该值时直接使用全部表
+         */
+        private int minTables = 50;
+
+        /**
+         * BM25词频饱和参数
+         */
+        private double k1 = 1.2;
+
+        /**
+         * BM25文档长度归一化参数
+         */
+        private double b = 0.75;
+
+        /**
+         * 表名中词的权重
+         */
+        private double nameWeight = 3.0;
+
+        /**
+         * 表注释中词的权重
+         */
+        private double commentWeight = 2.0;
+
+        /**
+         * 列名和列注释中词的权重，只索引已缓存的列信息
+         */
+        private double columnWeight = 1.0;
+
+        /**
+         * 与表结构缓存同步索引的最短间隔
+         */
+        private Duration syncInterval = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class SqlCache {
+
+        /**
+         * 是否缓存执行成功的问题和SQL
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最多缓存的问题数量
+         */
+        private long maxEntries = 10000;
+
+        /**
+         * 缓存时间
+         */
+        private Duration ttl = Duration.ofDays(1);
+
+        /**
+         * 相似匹配的最低相似度（字符二元组Jaccard），大于1时只做精确匹配
+         */
+        private double similarityThreshold = 0.4;
+
+        /**
+         * MinHash签名长度
+         */
+        private int minHashes = 64;
+
+        /**
+         * 相似匹配时忽略的虚词，多字词整体匹配（“多少”不会去掉“最多”中的“多”）；
+         * 比较（多、少、高、低、至、最）和否定（不、没、非、未）的字会改变问题含义，不能放入
+         */
+        private List<String> stopWords = List.of("多少", "查询", "一下", "帮我", "请问", "我们", "看看",
+                "的", "了", "各", "每", "个", "请", "吗", "呢", "啊", "吧");
+    }
+
+    @Data
+    public static class SchemaPrompt {
+
+        /**
+         * 是否使用紧凑格式，关闭时使用原JSON格式
+         */
+        private boolean compact = true;
+
+        /**
+         * 每列最多保留的样例值数量
+         */
+        private int maxSampleValues = 3;
+
+        /**
+         * 样例值和注释的最大长度，超出部分截断
+         */
+        private int maxValueLength = 32;
+
+        /**
+         * 是否裁剪宽表中与问题无关的列
+         */
+        private boolean pruneColumns = true;
+
+        /**
+         * 列数超过该值的表才会裁剪
+         */
+        private int pruneThreshold = 30;
+
+        /**
+         * 裁剪后至少保留的列数
+         */
+        private int keepColumns = 20;
+    }
+
+    @Data
+    public static class Session {
+
+        /**
+         * 是否按会话保存智能体状态，同一会话的追问复用已选定的表和表结构
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最多保存的会话数，超出时淘汰最久未使用的会话
+         */
+        private long maxSessions = 1000;
+
+        /**
+         * 会话空闲超过该时间后释放保存的状态
+         */
+        private Duration idleTimeout = Duration.ofMinutes(30);
+
+        /**
+         * 每个会话保留的检查点数量，追问只需要最近一次的状态
+         */
+        private int maxCheckpoints = 2;
+    }
+
+    @Data
+    public static class Rewrite {
+
+        /**
+         * 预检查结果过大时先在本地改写SQL（截取前N行、分组取前N条），改写后仍过大再交给大模型重新生成
+         */
+        private boolean enabled = true;
+
+        /**
+         * 按多个字段分组时，改写为按第一个分组字段取前N条，数据库不支持窗口函数时关闭
+         */
+        private boolean topNPerGroup = true;
+
+        /**
+         * 分组取前N条时每组保留的行数
+         */
+        private int topN = 5;
+    }
+
+    @Data
+    public static class Budget {
+
+        /**
+         * 一次问答最多生成SQL的轮数，用尽后按兜底策略结束
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * 一次问答的总耗时上限，用尽后按兜底策略结束
+         */
+        private Duration maxLatency = Duration.ofSeconds(90);
+    }
+
+    @Data
+    public static class Candidates {
+
+        /**
+         * 是否每轮并行生成多条候选SQL并同时预检查，取第一条通过预检查的SQL
+         */
+        private boolean enabled = false;
+
+        /**
+         * 每轮并行生成的候选SQL数量
+         */
+        private int count = 3;
+
+        /**
+         * 候选SQL先执行EXPLAIN，语法或字段错误时不再试探执行
+         */
+        private boolean explain = true;
+    }
+}
@@ -43,6 +43,8 @@ public class McpConfig {
                 .authorizeHttpRequests(authz -> authz
                         // 允许认证相关端点无需认证
                         .requestMatchers("/sse","/api/auth/**").permitAll()
+                        // 健康检查和指标抓取
+                        .requestMatchers("/actuator/health","/actuator/prometheus").permitAll()
                         // 保护MCP相关端点
                         .requestMatchers("/messages").authenticated()
                         .anyRequest().authenticated()
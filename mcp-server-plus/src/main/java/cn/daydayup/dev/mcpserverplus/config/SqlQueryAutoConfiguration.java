@@ -1,16 +1,29 @@
 package cn.daydayup.dev.mcpserverplus.config;
 
-import cn.daydayup.dev.mcpserverplus.agent.AgentNode;
+import cn.daydayup.dev.mcpcommon.concurrent.BoundedExecutors;
+import cn.daydayup.dev.mcpcommon.datasource.DataSourceRouter;
+import cn.daydayup.dev.mcpcommon.datasource.PooledDataSource;
+import cn.daydayup.dev.mcpcommon.metrics.McpMetrics;
+import cn.daydayup.dev.mcpcommon.query.QueryGovernor;
+import cn.daydayup.dev.mcpcommon.query.QueryResultCache;
+import cn.daydayup.dev.mcpcommon.query.StreamingQueryExecutor;
+import cn.daydayup.dev.mcpcommon.schema.SchemaCatalog;
 import cn.daydayup.dev.mcpserverplus.agent.SqlQueryAgent;
+import cn.daydayup.dev.mcpserverplus.agent.SqlQueryAgentGraphs;
+import cn.daydayup.dev.mcpserverplus.cache.QuestionSqlCache;
+import cn.daydayup.dev.mcpserverplus.cache.SessionCheckpointSaver;
+import cn.daydayup.dev.mcpserverplus.prompt.SchemaEncoder;
+import cn.daydayup.dev.mcpserverplus.retrieval.TableRetriever;
+import cn.daydayup.dev.mcpserverplus.rewrite.SqlRewriter;
 import dev.langchain4j.community.model.dashscope.QwenChatModel;
 import dev.langchain4j.model.chat.ChatModel;
 import lombok.RequiredArgsConstructor;
-import org.bsc.langgraph4j.CompiledGraph;
-import org.bsc.langgraph4j.state.AgentState;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import java.util.concurrent.ExecutorService;
 
 /**
  * @ClassName DatabaseQueryAutoConfiguration
@@ -21,6 +34,7 @@ import org.springframework.context.annotation.Configuration;
  */
 @Configuration
 @RequiredArgsConstructor
+@EnableConfigurationProperties(AgentProperties.class)
 public class SqlQueryAutoConfiguration {
 
     @Value("${llm.dashscope.chat-model}")
@@ -40,14 +54,75 @@ public class SqlQueryAutoConfiguration {
     }
 
     @Bean
-    public AgentNode sqlQueryAgent(@Qualifier("chatModel") ChatModel chatModel){
-        return new SqlQueryAgent(chatModel,Constants.MYSQL_CONFIG);
+    public TableRetriever tableRetriever(SchemaCatalog schemaCatalog, AgentProperties agentProperties) {
+        return new TableRetriever(schemaCatalog, agentProperties.getRetrieval());
     }
 
-    @Bean(value = "sqlQueryAgentGraph")
-    public CompiledGraph<AgentState> sqlQueryAgentGraph(@Qualifier("sqlQueryAgent") AgentNode sqlQueryAgent)
-            throws Exception {
+    @Bean
+    public QuestionSqlCache questionSqlCache(AgentProperties agentProperties) {
+        return new QuestionSqlCache(agentProperties.getSqlCache());
+    }
+
+    @Bean
+    public SchemaEncoder schemaEncoder(AgentProperties agentProperties) {
+        return new SchemaEncoder(agentProperties.getSchemaPrompt());
+    }
+
+    @Bean
+    public SqlRewriter sqlRewriter(AgentProperties agentProperties) {
+        return new SqlRewriter(agentProperties.getRewrite());
+    }
+
+    @Bean
+    public SessionCheckpointSaver sessionCheckpointSaver(AgentProperties agentProperties) {
+        return new SessionCheckpointSaver(agentProperties.getSession(), SqlQueryAgent.RESULT_KEYS);
+    }
 
-        return sqlQueryAgent.buildGraph().compile();
+    /**
+     * 每个数据源一个智能体，结构和样例数据查询使用与该数据源连接池同样大小的独立线程池；
+     * 启用候选SQL时另建候选线程池，候选之间的数据库并发仍受该数据源的并发隔离限制
+     */
+    @Bean
+    public SqlQueryAgentGraphs sqlQueryAgentGraphs(@Qualifier("chatModel") ChatModel chatModel,
+                                                   DataSourceRouter dataSourceRouter,
+                                                   SchemaCatalog schemaCatalog,
+                                                   QueryResultCache queryResultCache,
+                                                   StreamingQueryExecutor streamingQueryExecutor,
+                                                   AgentProperties agentProperties,
+                                                   TableRetriever tableRetriever,
+                                                   QuestionSqlCache questionSqlCache,
+                                                   SchemaEncoder schemaEncoder,
+                                                   McpMetrics mcpMetrics,
+                                                   QueryGovernor queryGovernor,
+                                                   SqlRewriter sqlRewriter,
+                                                   SessionCheckpointSaver sessionCheckpointSaver) throws Exception {
+        SqlQueryAgentGraphs graphs = new SqlQueryAgentGraphs(dataSourceRouter, sessionCheckpointSaver,
+                agentProperties.getSession().isEnabled());
+        for (PooledDataSource dataSource : dataSourceRouter.all()) {
+            int threads = dataSource.stats().maxPoolSize();
+            AgentProperties.Candidates candidates = agentProperties.getCandidates();
+            ExecutorService candidateExecutor = candidates.isEnabled()
+                    ? BoundedExecutors.newBoundedExecutor("agent-candidates-" + dataSource.getId(),
+                            candidates.getCount() * 4, candidates.getCount() * 8)
+                    : null;
+            graphs.add(dataSource.getId(), SqlQueryAgent.builder()
+                    .chatModel(chatModel)
+                    .dataSource(dataSource)
+                    .schemaCatalog(schemaCatalog)
+                    .queryResultCache(queryResultCache)
+                    .streamingQueryExecutor(streamingQueryExecutor)
+                    .properties(agentProperties)
+                    .schemaExecutor(BoundedExecutors.newBoundedExecutor("agent-schema-" + dataSource.getId(),
+                            threads, threads * 4))
+                    .tableRetriever(tableRetriever)
+                    .questionSqlCache(questionSqlCache)
+                    .schemaEncoder(schemaEncoder)
+                    .metrics(mcpMetrics)
+                    .queryGovernor(queryGovernor)
+                    .candidateExecutor(candidateExecutor)
+                    .sqlRewriter(agentProperties.getRewrite().isEnabled() ? sqlRewriter : null)
+                    .build());
+        }
+        return graphs;
     }
 }
@@ -0,0 +1,109 @@
+package cn.daydayup.dev.mcpserverplus.controller;
+
+import cn.daydayup.dev.mcpcommon.datasource.DataSourceRegistry;
+import cn.daydayup.dev.mcpcommon.datasource.PoolStats;
+import cn.daydayup.dev.mcpcommon.query.QueryGovernor;
+import cn.daydayup.dev.mcpcommon.query.QueryResultCache;
+import cn.daydayup.dev.mcpcommon.schema.SchemaCacheStats;
+import cn.daydayup.dev.mcpcommon.schema.SchemaCatalog;
+import cn.daydayup.dev.mcpserverplus.cache.QuestionSqlCache;
+import cn.daydayup.dev.mcpserverplus.cache.SessionCheckpointSaver;
+import cn.daydayup.dev.mcpserverplus.prompt.SchemaEncoder;
+import cn.daydayup.dev.mcpserverplus.retrieval.TableRetriever;
+import cn.daydayup.dev.mcpserverplus.security.JwtUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import java.util.Map;
+
+/**
+ * @ClassName MonitorController
+ * @Description 运行状态监控
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 9:30
+ * @Version 1.0
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/monitor")
+public class MonitorController {
+
+    private final DataSourceRegistry dataSourceRegistry;
+
+    private final SchemaCatalog schemaCatalog;
+
+    private final QueryResultCache queryResultCache;
+
+    private final QueryGovernor queryGovernor;
+
+    private final TableRetriever tableRetriever;
+
+    private final QuestionSqlCache questionSqlCache;
+
+    private final SessionCheckpointSaver sessionCheckpointSaver;
+
+    private final SchemaEncoder schemaEncoder;
+
+    private final JwtUtils jwtUtils;
+
+    @GetMapping("/datasource")
+    public Map<String, PoolStats> datasource() {
+        return dataSourceRegistry.stats();
+    }
+
+    @GetMapping("/schema-cache")
+    public SchemaCacheStats schemaCache() {
+        return schemaCatalog.stats();
+    }
+
+    @PostMapping("/schema-cache/refresh")
+    public SchemaCacheStats refreshSchemaCache(@RequestParam("datasource") String datasource) {
+        schemaCatalog.refresh(dataSourceRegistry.get(datasource));
+        return schemaCatalog.stats();
+    }
+
+    @GetMapping("/query-cache")
+    public Map<String, Object> queryCache() {
+        return queryResultCache.stats();
+    }
+
+    @GetMapping("/query-governor")
+    public Map<String, Object> queryGovernor() {
+        return queryGovernor.stats();
+    }
+
+    @PostMapping("/query-cache/invalidate")
+    public Map<String, Object> invalidateQueryCache(@RequestParam("datasource") String datasource,
+                                                    @RequestParam("table") String table) {
+        queryResultCache.invalidateTable(dataSourceRegistry.get(datasource).getId(), table);
+        return queryResultCache.stats();
+    }
+
+    @GetMapping("/table-index")
+    public Map<String, Integer> tableIndex() {
+        return tableRetriever.stats();
+    }
+
+    @GetMapping("/sql-cache")
+    public Map<String, Object> sqlCache() {
+        return questionSqlCache.stats();
+    }
+
+    @GetMapping("/agent-sessions")
+    public Map<String, Object> agentSessions() {
+        return sessionCheckpointSaver.stats();
+    }
+
+    @GetMapping("/schema-prompt")
+    public Map<String, Object> schemaPrompt() {
+        return schemaEncoder.stats();
+    }
+
+    @GetMapping("/token-cache")
+    public Map<String, Object> tokenCache() {
+        return jwtUtils.tokenCacheStats();
+    }
+}
@@ -4,6 +4,7 @@ import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.service.UserMessage;
 import dev.langchain4j.service.V;
+import java.util.Locale;
 
 /**
  * @ClassName Text2SQL
@@ -26,25 +27,94 @@ public record Text2SQL (ChatModel chatModel) {
          * @return SQL语句
          */
         @UserMessage("""
-                ### 指令: 熟悉MySQL数据库相关的SQL功能，你的任务是根据用户输入和表结构信息，生成符合要求且可实际执行的SQL语句。
+                ### 指令: 熟悉{{dialect}}数据库相关的SQL功能，你的任务是根据用户输入和表结构信息，生成符合要求且可在{{dialect}}上实际执行的SQL语句。
                 ### 表结构：{{tableSchema}}
                 ### 用户输入: {{userInput}}
-                ### 输出要求: 直接输出最终的SQL语句，不要包含任何解释、注释和分析内容；使用as关键字将英文字段名转为中文描述，中文描述使用英文单引号包裹；结果以Markdown格式展示SQL代码块。
+                ### 输出要求: 直接输出最终的SQL语句，不要包含任何解释、注释和分析内容；{{rules}}；每条SQL语句以分号结尾；结果以Markdown格式展示SQL代码块。
                 ### 示例：
                 ```sql
-                    select
-                        id as '编号',
-                        name as '姓名'
-                    from
-                        users_table
-                    where age = 30;
+                {{example}}
                 ```
                 """)
-        String invoke(@V("tableSchema") String tableSchema, @V("userInput") String userInput);
+        String invoke(@V("dialect") String dialect, @V("rules") String rules, @V("example") String example,
+                      @V("tableSchema") String tableSchema, @V("userInput") String userInput);
     }
 
+    /**
+     * 按MySQL方言生成SQL
+     */
     public String apply(String tableSchema,String userInput) {
+        return apply("mysql", tableSchema, userInput);
+    }
+
+    /**
+     * 按数据源的方言生成SQL
+     * @param dbType 数据库类型：mysql、oracle、postgresql，无法识别时按MySQL
+     * @param tableSchema 表结构
+     * @param userInput 用户输入
+     * @return 大模型输出的SQL代码块
+     */
+    public String apply(String dbType, String tableSchema, String userInput) {
+        Dialect dialect = Dialect.of(dbType);
         LLMService service = AiServices.create(LLMService.class, chatModel);
-        return service.invoke(tableSchema,userInput);
+        return service.invoke(dialect.label, dialect.rules, dialect.example, tableSchema, userInput);
+    }
+
+    /**
+     * 各数据库的别名写法和行数限制写法不同，按方言给出要求和示例
+     */
+    enum Dialect {
+
+        MYSQL("MySQL", "使用as关键字将英文字段名转为中文描述，中文描述使用英文单引号包裹；限制行数使用LIMIT", """
+                select
+                    id as '编号',
+                    name as '姓名'
+                from
+                    users_table
+                where age = 30
+                limit 100;"""),
+
+        ORACLE("Oracle", "使用as关键字将英文字段名转为中文描述，中文描述必须使用英文双引号包裹，不能使用单引号；"
+                + "不支持LIMIT，限制行数使用FETCH FIRST n ROWS ONLY；表别名前不能写as", """
+                select
+                    id as "编号",
+                    name as "姓名"
+                from
+                    users_table u
+                where u.age = 30
+                fetch first 100 rows only;"""),
+
+        POSTGRESQL("PostgreSQL", "使用as关键字将英文字段名转为中文描述，中文描述必须使用英文双引号包裹，不能使用单引号；"
+                + "限制行数使用LIMIT", """
+                select
+                    id as "编号",
+                    name as "姓名"
+                from
+                    users_table
+                where age = 30
+                limit 100;""");
+
+        private final String label;
+
+        private final String rules;
+
+        private final String example;
+
+        Dialect(String label, String rules, String example) {
+            this.label = label;
+            this.rules = rules;
+            this.example = example;
+        }
+
+        static Dialect of(String dbType) {
+            if (dbType == null) {
+                return MYSQL;
+            }
+            return switch (dbType.trim().toLowerCase(Locale.ROOT)) {
+                case "oracle" -> ORACLE;
+                case "postgresql", "postgres" -> POSTGRESQL;
+                default -> MYSQL;
+            };
+        }
     }
 }
@@ -0,0 +1,251 @@
+package cn.daydayup.dev.mcpserverplus.prompt;
+
+import cn.daydayup.dev.mcpserverplus.config.AgentProperties;
+import cn.daydayup.dev.mcpserverplus.retrieval.SchemaHeaders;
+import cn.daydayup.dev.mcpserverplus.retrieval.Tokenizer;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.TypeReference;
+import org.apache.commons.lang3.tuple.Pair;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @ClassName SchemaEncoder
+ * @Description 紧凑的表结构提示词：每张表一行，列带类型和注释，样例值去重截断；宽表按问题裁剪无关列
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 17:50
+ * @Version 1.0
+ */
+public class SchemaEncoder {
+
+    private static final String LEGEND = "格式：表名(表注释): 列名:类型(列注释)=样例值|样例值, ...\n";
+
+    private final AgentProperties.SchemaPrompt properties;
+
+    private final LongAdder encodes = new LongAdder();
+    private final LongAdder bytesBefore = new LongAdder();
+    private final LongAdder bytesAfter = new LongAdder();
+    private final LongAdder prunedColumns = new LongAdder();
+
+    public SchemaEncoder(AgentProperties.SchemaPrompt properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 编码表结构
+     * @param question 用户问题，用于裁剪宽表的列
+     * @param tables 表结构
+     * @param legacyBytes 原JSON格式的字节数，用于统计压缩效果
+     * @return 表结构提示词
+     */
+    public String encode(String question, List<TableSchema> tables, long legacyBytes) {
+        Set<String> questionTerms = new HashSet<>(Tokenizer.tokenize(question));
+        StringBuilder builder = new StringBuilder(LEGEND);
+        for (TableSchema table : tables) {
+            encodeTable(builder, table, questionTerms);
+            builder.append('\n');
+        }
+        String encoded = builder.toString();
+        encodes.increment();
+        bytesBefore.add(legacyBytes);
+        bytesAfter.add(encoded.getBytes(StandardCharsets.UTF_8).length);
+        return encoded;
+    }
+
+    /**
+     * 未裁剪的表结构转为JSON，保存在会话状态中，追问时按新问题重新编码
+     * @param tables 表结构
+     * @return JSON
+     */
+    public static String toJson(List<TableSchema> tables) {
+        JSONArray array = new JSONArray();
+        for (TableSchema table : tables) {
+            JSONObject object = new JSONObject();
+            object.put("name", table.name());
+            object.put("comment", table.comment());
+            object.put("columnInfo", pairToJson(table.columnInfo()));
+            object.put("sampleData", pairToJson(table.sampleData()));
+            array.add(object);
+        }
+        return array.toJSONString();
+    }
+
+    /**
+     * 从会话状态中的JSON还原表结构
+     * @param json {@link #toJson(List)} 的结果
+     * @return 表结构
+     */
+    public static List<TableSchema> fromJson(String json) {
+        List<TableSchema> tables = new ArrayList<>();
+        for (Object item : JSON.parseArray(json)) {
+            JSONObject object = (JSONObject) item;
+            tables.add(new TableSchema(object.getString("name"), object.getString("comment"),
+                    pairFromJson(object.getJSONObject("columnInfo")), pairFromJson(object.getJSONObject("sampleData"))));
+        }
+        return tables;
+    }
+
+    private static JSONObject pairToJson(Pair<List<String>, List<List<String>>> pair) {
+        if (pair == null) {
+            return null;
+        }
+        JSONObject object = new JSONObject();
+        object.put("headers", pair.getKey());
+        object.put("rows", pair.getValue());
+        return object;
+    }
+
+    private static Pair<List<String>, List<List<String>>> pairFromJson(JSONObject object) {
+        if (object == null) {
+            return null;
+        }
+        return Pair.of(object.getObject("headers", new TypeReference<List<String>>() {}),
+                object.getObject("rows", new TypeReference<List<List<String>>>() {}));
+    }
+
+    /**
+     * 压缩效果统计
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        long before = bytesBefore.sum();
+        long after = bytesAfter.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("encodes", encodes.sum());
+        result.put("bytesBefore", before);
+        result.put("bytesAfter", after);
+        result.put("ratio", before == 0 ? 0 : (double) after / before);
+        result.put("prunedColumns", prunedColumns.sum());
+        return result;
+    }
+
+    private void encodeTable(StringBuilder builder, TableSchema table, Set<String> questionTerms) {
+        builder.append(table.name());
+        if (table.comment() != null && !table.comment().isBlank()) {
+            builder.append('(').append(clean(table.comment(), properties.getMaxValueLength())).append(')');
+        }
+        builder.append(": ");
+        Pair<List<String>, List<List<String>>> columnInfo = table.columnInfo();
+        if (columnInfo == null || columnInfo.getValue().isEmpty()) {
+            builder.append("(表结构未知)");
+            return;
+        }
+        List<String> headers = columnInfo.getKey();
+        int nameColumn = SchemaHeaders.nameColumn(headers);
+        int typeColumn = SchemaHeaders.typeColumn(headers, nameColumn);
+        int commentColumn = SchemaHeaders.commentColumn(headers, nameColumn);
+        List<List<String>> columns = columnInfo.getValue();
+        Map<String, Set<String>> samples = samples(table.sampleData());
+
+        List<Integer> kept = keptColumns(columns, nameColumn, commentColumn, samples, questionTerms);
+        for (int i = 0; i < kept.size(); i++) {
+            List<String> column = columns.get(kept.get(i));
+            String name = column.get(nameColumn);
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(name);
+            if (typeColumn >= 0 && column.get(typeColumn) != null) {
+                builder.append(':').append(column.get(typeColumn));
+            }
+            if (commentColumn >= 0 && column.get(commentColumn) != null && !column.get(commentColumn).isBlank()) {
+                builder.append('(').append(clean(column.get(commentColumn), properties.getMaxValueLength())).append(')');
+            }
+            Set<String> values = samples.get(name);
+            if (values != null && !values.isEmpty()) {
+                builder.append('=').append(String.join("|", values));
+            }
+        }
+        int pruned = columns.size() - kept.size();
+        if (pruned > 0) {
+            prunedColumns.add(pruned);
+            builder.append(", ...另有").append(pruned).append("列与问题无关已省略");
+        }
+    }
+
+    /**
+     * 宽表只保留列名、注释或样例值与问题相关的列，再按原顺序补足到保留数量
+     */
+    private List<Integer> keptColumns(List<List<String>> columns, int nameColumn, int commentColumn,
+                                      Map<String, Set<String>> samples, Set<String> questionTerms) {
+        List<Integer> all = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            all.add(i);
+        }
+        if (!properties.isPruneColumns() || columns.size() <= properties.getPruneThreshold()) {
+            return all;
+        }
+        Set<Integer> kept = new LinkedHashSet<>();
+        for (int i = 0; i < columns.size(); i++) {
+            List<String> column = columns.get(i);
+            String text = column.get(nameColumn) + " " + (commentColumn >= 0 ? column.get(commentColumn) : "")
+                    + " " + String.join(" ", samples.getOrDefault(column.get(nameColumn), Set.of()));
+            for (String term : Tokenizer.tokenize(text)) {
+                if (questionTerms.contains(term)) {
+                    kept.add(i);
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < columns.size() && kept.size() < properties.getKeepColumns(); i++) {
+            kept.add(i);
+        }
+        List<Integer> ordered = new ArrayList<>(kept);
+        ordered.sort(Integer::compareTo);
+        return ordered;
+    }
+
+    /**
+     * 列名 -> 去重截断后的样例值
+     */
+    private Map<String, Set<String>> samples(Pair<List<String>, List<List<String>>> sampleData) {
+        Map<String, Set<String>> samples = new LinkedHashMap<>();
+        if (sampleData == null) {
+            return samples;
+        }
+        List<String> headers = sampleData.getKey();
+        for (List<String> row : sampleData.getValue()) {
+            for (int i = 0; i < headers.size(); i++) {
+                String value = row.get(i);
+                if (value == null || value.isBlank()) {
+                    continue;
+                }
+                Set<String> values = samples.computeIfAbsent(headers.get(i), k -> new LinkedHashSet<>());
+                if (values.size() < properties.getMaxSampleValues()) {
+                    values.add(clean(value, properties.getMaxValueLength()));
+                }
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * 去除换行和分隔符，超长部分截断
+     */
+    private static String clean(String value, int maxLength) {
+        String cleaned = value.replaceAll("[\\r\\n|]+", " ").trim();
+        return cleaned.length() > maxLength ? cleaned.substring(0, maxLength) + "…" : cleaned;
+    }
+
+    /**
+     * 单张表的结构信息
+     * @param name 表名
+     * @param comment 表注释
+     * @param columnInfo 列信息，获取失败时为null
+     * @param sampleData 样例数据，获取失败时为null
+     */
+    public record TableSchema(String name,
+                              String comment,
+                              Pair<List<String>, List<List<String>>> columnInfo,
+                              Pair<List<String>, List<List<String>>> sampleData) {
+    }
+}
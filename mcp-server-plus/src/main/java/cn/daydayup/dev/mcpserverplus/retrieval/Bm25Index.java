@@ -0,0 +1,141 @@
+package cn.daydayup.dev.mcpserverplus.retrieval;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @ClassName Bm25Index
+ * @Description BM25倒排索引，支持按文档增量更新，词频可按字段加权
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 16:40
+ * @Version 1.0
+ */
+public class Bm25Index {
+
+    private final double k1;
+    private final double b;
+
+    /**
+     * 词 -> 文档ID -> 加权词频
+     */
+    private final Map<String, Map<String, Double>> postings = new HashMap<>();
+
+    /**
+     * 文档ID -> 加权词频，删除和更新时用于清理倒排表
+     */
+    private final Map<String, Map<String, Double>> documents = new HashMap<>();
+
+    private final Map<String, Double> lengths = new HashMap<>();
+
+    private double totalLength;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public Bm25Index(double k1, double b) {
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    /**
+     * 新增或替换文档
+     * @param id 文档ID
+     * @param termFrequencies 词 -> 加权词频
+     */
+    public void put(String id, Map<String, Double> termFrequencies) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            Map<String, Double> terms = Map.copyOf(termFrequencies);
+            double length = 0;
+            for (Map.Entry<String, Double> term : terms.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), k -> new HashMap<>()).put(id, term.getValue());
+                length += term.getValue();
+            }
+            documents.put(id, terms);
+            lengths.put(id, length);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 检索得分最高的文档
+     * @param queryTerms 查询分词
+     * @param topK 返回数量
+     * @return 按得分降序排列的文档，不包含得分为0的文档
+     */
+    public List<Hit> search(Collection<String> queryTerms, int topK) {
+        lock.readLock().lock();
+        try {
+            int count = documents.size();
+            if (count == 0 || topK <= 0) {
+                return List.of();
+            }
+            double averageLength = totalLength / count;
+            Map<String, Double> scores = new HashMap<>();
+            for (String term : new LinkedHashSet<>(queryTerms)) {
+                Map<String, Double> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (count - posting.size() + 0.5) / (posting.size() + 0.5));
+                for (Map.Entry<String, Double> entry : posting.entrySet()) {
+                    double tf = entry.getValue();
+                    double norm = k1 * (1 - b + b * lengths.get(entry.getKey()) / averageLength);
+                    scores.merge(entry.getKey(), idf * tf * (k1 + 1) / (tf + norm), Double::sum);
+                }
+            }
+            List<Hit> hits = new ArrayList<>(scores.size());
+            scores.forEach((id, score) -> hits.add(new Hit(id, score)));
+            hits.sort((x, y) -> Double.compare(y.score(), x.score()));
+            return hits.size() > topK ? List.copyOf(hits.subList(0, topK)) : hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeInternal(String id) {
+        Map<String, Double> terms = documents.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<String, Double> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= lengths.remove(id);
+    }
+
+    public record Hit(String id, double score) {
+    }
+}
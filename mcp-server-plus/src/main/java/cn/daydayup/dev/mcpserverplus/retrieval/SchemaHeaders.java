@@ -0,0 +1,57 @@
+package cn.daydayup.dev.mcpserverplus.retrieval;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * @ClassName SchemaHeaders
+ * @Description 按表头识别表信息和列信息中的名称、类型、注释列，不同数据库返回的表头不一致
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 17:50
+ * @Version 1.0
+ */
+public final class SchemaHeaders {
+
+    private SchemaHeaders() {
+    }
+
+    /**
+     * 名称所在列：表头含 name 的列，找不到时取第一列
+     */
+    public static int nameColumn(List<String> headers) {
+        for (int i = 0; i < headers.size(); i++) {
+            String header = headers.get(i).toLowerCase(Locale.ROOT);
+            if (header.contains("name") || header.contains("名")) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 注释所在列：表头含 comment/remark/注释/描述 的列，找不到时返回-1
+     */
+    public static int commentColumn(List<String> headers, int nameColumn) {
+        for (int i = 0; i < headers.size(); i++) {
+            String header = headers.get(i).toLowerCase(Locale.ROOT);
+            if (i != nameColumn && (header.contains("comment") || header.contains("remark")
+                    || header.contains("注释") || header.contains("描述") || header.contains("说明"))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 类型所在列：表头含 type/类型 的列，找不到时返回-1
+     */
+    public static int typeColumn(List<String> headers, int nameColumn) {
+        for (int i = 0; i < headers.size(); i++) {
+            String header = headers.get(i).toLowerCase(Locale.ROOT);
+            if (i != nameColumn && (header.contains("type") || header.contains("类型"))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
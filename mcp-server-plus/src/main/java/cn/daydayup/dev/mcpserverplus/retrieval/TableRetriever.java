@@ -0,0 +1,193 @@
+package cn.daydayup.dev.mcpserverplus.retrieval;
+
+import cn.daydayup.dev.mcpcommon.datasource.PooledDataSource;
+import cn.daydayup.dev.mcpcommon.schema.SchemaCatalog;
+import cn.daydayup.dev.mcpserverplus.config.AgentProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.tuple.Pair;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @ClassName TableRetriever
+ * @Description 候选表检索：基于表结构缓存构建BM25索引（表名、表注释、已缓存的列名和列注释），按问题召回候选表
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 16:40
+ * @Version 1.0
+ */
+@Slf4j
+public class TableRetriever {
+
+    private final SchemaCatalog schemaCatalog;
+
+    private final AgentProperties.Retrieval properties;
+
+    /**
+     * 数据源ID -> 表索引
+     */
+    private final Map<String, TableIndex> indexes = new ConcurrentHashMap<>();
+
+    public TableRetriever(SchemaCatalog schemaCatalog, AgentProperties.Retrieval properties) {
+        this.schemaCatalog = schemaCatalog;
+        this.properties = properties;
+    }
+
+    /**
+     * 按问题筛选候选表，表数量较少或没有任何词命中时返回全部表
+     * @param dataSource 数据源
+     * @param tableInfo 全部表信息
+     * @param question 用户问题
+     * @return 候选表信息，表头与原表信息一致
+     */
+    public Pair<List<String>, List<List<String>>> candidates(PooledDataSource dataSource,
+                                                            Pair<List<String>, List<List<String>>> tableInfo,
+                                                            String question) {
+        List<List<String>> rows = tableInfo.getValue();
+        if (!properties.isEnabled() || rows.size() <= Math.max(properties.getMinTables(), properties.getTopK())) {
+            return tableInfo;
+        }
+        TableIndex index = indexes.computeIfAbsent(dataSource.getId(),
+                id -> new TableIndex(new Bm25Index(properties.getK1(), properties.getB())));
+        index.sync(dataSource.getId(), tableInfo);
+        List<Bm25Index.Hit> hits = index.bm25.search(Tokenizer.tokenize(question), properties.getTopK());
+        if (hits.isEmpty()) {
+            log.info("[TableRetriever] 问题与所有表都不相关，使用全部{}张表", rows.size());
+            return tableInfo;
+        }
+        int nameColumn = SchemaHeaders.nameColumn(tableInfo.getKey());
+        Map<String, List<String>> byName = new HashMap<>();
+        for (List<String> row : rows) {
+            byName.put(row.get(nameColumn), row);
+        }
+        List<List<String>> candidates = new ArrayList<>(hits.size());
+        for (Bm25Index.Hit hit : hits) {
+            List<String> row = byName.get(hit.id());
+            if (row != null) {
+                candidates.add(row);
+            }
+        }
+        log.info("[TableRetriever] 从{}张表中召回{}张候选表", rows.size(), candidates.size());
+        return Pair.of(tableInfo.getKey(), candidates);
+    }
+
+    /**
+     * 按问题检索最相关的表，不受表数量下限限制，用于判断追问是否仍然针对已选定的表
+     * @param dataSource 数据源
+     * @param tableInfo 全部表信息
+     * @param question 用户问题
+     * @param topK 返回的表数量
+     * @return 按相关度降序的表名，没有任何词命中时为空
+     */
+    public List<String> relevantTables(PooledDataSource dataSource,
+                                       Pair<List<String>, List<List<String>>> tableInfo,
+                                       String question, int topK) {
+        TableIndex index = indexes.computeIfAbsent(dataSource.getId(),
+                id -> new TableIndex(new Bm25Index(properties.getK1(), properties.getB())));
+        index.sync(dataSource.getId(), tableInfo);
+        List<String> tables = new ArrayList<>();
+        for (Bm25Index.Hit hit : index.bm25.search(Tokenizer.tokenize(question), topK)) {
+            tables.add(hit.id());
+        }
+        return tables;
+    }
+
+    /**
+     * 已建立的索引规模
+     * @return 数据源ID -> 已索引的表数量
+     */
+    public Map<String, Integer> stats() {
+        Map<String, Integer> stats = new LinkedHashMap<>();
+        indexes.forEach((id, index) -> stats.put(id, index.bm25.size()));
+        return stats;
+    }
+
+    /**
+     * 单个数据源的索引，只对新增、删除和内容变化的表做增量更新
+     */
+    private final class TableIndex {
+
+        private final Bm25Index bm25;
+
+        /**
+         * 表名 -> 已索引内容的签名
+         */
+        private final Map<String, Integer> signatures = new HashMap<>();
+
+        private Pair<List<String>, List<List<String>>> syncedTables;
+
+        private long syncedAt;
+
+        private TableIndex(Bm25Index bm25) {
+            this.bm25 = bm25;
+        }
+
+        private synchronized void sync(String dataSourceId, Pair<List<String>, List<List<String>>> tableInfo) {
+            long now = System.nanoTime();
+            // 表清单未刷新且未到同步间隔时直接使用现有索引
+            if (tableInfo == syncedTables && now - syncedAt < properties.getSyncInterval().toNanos()) {
+                return;
+            }
+            int nameColumn = SchemaHeaders.nameColumn(tableInfo.getKey());
+            int commentColumn = SchemaHeaders.commentColumn(tableInfo.getKey(), nameColumn);
+            Map<String, Pair<List<String>, List<List<String>>>> columns = schemaCatalog.cachedColumns(dataSourceId);
+            Set<String> seen = new HashSet<>();
+            int updated = 0;
+            for (List<String> row : tableInfo.getValue()) {
+                String table = row.get(nameColumn);
+                String comment = commentColumn >= 0 ? row.get(commentColumn) : null;
+                Pair<List<String>, List<List<String>>> columnInfo = columns.get(table);
+                seen.add(table);
+                int signature = Objects.hash(comment, columnInfo == null ? null : columnInfo.getValue());
+                Integer previous = signatures.put(table, signature);
+                if (previous == null || previous != signature) {
+                    bm25.put(table, terms(table, comment, columnInfo));
+                    updated++;
+                }
+            }
+            int removed = 0;
+            for (String table : new ArrayList<>(signatures.keySet())) {
+                if (!seen.contains(table)) {
+                    signatures.remove(table);
+                    bm25.remove(table);
+                    removed++;
+                }
+            }
+            if (updated > 0 || removed > 0) {
+                log.info("[TableRetriever] 数据源[{}]索引已同步，更新{}张表，删除{}张表", dataSourceId, updated, removed);
+            }
+            syncedTables = tableInfo;
+            syncedAt = now;
+        }
+    }
+
+    private Map<String, Double> terms(String table, String comment,
+                                      Pair<List<String>, List<List<String>>> columnInfo) {
+        Map<String, Double> terms = new HashMap<>();
+        addTerms(terms, table, properties.getNameWeight());
+        addTerms(terms, comment, properties.getCommentWeight());
+        if (columnInfo != null) {
+            int nameColumn = SchemaHeaders.nameColumn(columnInfo.getKey());
+            int commentColumn = SchemaHeaders.commentColumn(columnInfo.getKey(), nameColumn);
+            for (List<String> row : columnInfo.getValue()) {
+                addTerms(terms, row.get(nameColumn), properties.getColumnWeight());
+                if (commentColumn >= 0) {
+                    addTerms(terms, row.get(commentColumn), properties.getColumnWeight());
+                }
+            }
+        }
+        return terms;
+    }
+
+    private static void addTerms(Map<String, Double> terms, String text, double weight) {
+        for (String token : Tokenizer.tokenize(text)) {
+            terms.merge(token, weight, Double::sum);
+        }
+    }
+}
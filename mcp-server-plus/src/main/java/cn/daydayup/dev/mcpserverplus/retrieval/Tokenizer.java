@@ -0,0 +1,71 @@
+package cn.daydayup.dev.mcpserverplus.retrieval;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * @ClassName Tokenizer
+ * @Description 检索分词：英文/数字按单词切分（下划线、驼峰拆开），中文按相邻两字切分
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 16:40
+ * @Version 1.0
+ */
+public final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        StringBuilder word = new StringBuilder();
+        StringBuilder han = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char ch = normalized.charAt(i);
+            if (isHan(ch)) {
+                flushWord(word, tokens);
+                han.append(ch);
+            } else if (Character.isLetterOrDigit(ch)) {
+                flushHan(han, tokens);
+                // 驼峰命名在大写字母处断开
+                if (Character.isUpperCase(ch) && !word.isEmpty()
+                        && Character.isLowerCase(word.charAt(word.length() - 1))) {
+                    flushWord(word, tokens);
+                }
+                word.append(ch);
+            } else {
+                flushWord(word, tokens);
+                flushHan(han, tokens);
+            }
+        }
+        flushWord(word, tokens);
+        flushHan(han, tokens);
+        return tokens;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (!word.isEmpty()) {
+            tokens.add(word.toString().toLowerCase(Locale.ROOT));
+            word.setLength(0);
+        }
+    }
+
+    private static void flushHan(StringBuilder han, List<String> tokens) {
+        if (han.length() == 1) {
+            tokens.add(han.toString());
+        }
+        for (int i = 0; i + 1 < han.length(); i++) {
+            tokens.add(han.substring(i, i + 2));
+        }
+        han.setLength(0);
+    }
+
+    private static boolean isHan(char ch) {
+        return Character.UnicodeScript.of(ch) == Character.UnicodeScript.HAN;
+    }
+}
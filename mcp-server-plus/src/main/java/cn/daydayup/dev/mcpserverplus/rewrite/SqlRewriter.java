@@ -0,0 +1,324 @@
+package cn.daydayup.dev.mcpserverplus.rewrite;
+
+import cn.daydayup.dev.mcpcommon.query.StreamingResult;
+import cn.daydayup.dev.mcpserverplus.config.AgentProperties;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Alias;
+import net.sf.jsqlparser.expression.AnalyticExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.AllColumns;
+import net.sf.jsqlparser.statement.select.Limit;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import net.sf.jsqlparser.statement.select.ParenthesedSelect;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SelectItem;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * @ClassName SqlRewriter
+ * @Description 预检查结果过大时在本地改写SQL，不再调用大模型：
+ * 去掉只用于筛选的窗口函数列、多字段分组时改写为按第一个分组字段取前N条、按行数和字节数上限注入或收紧LIMIT
+ * @Author ZhaoYanNing
+ * @Date 2026/10/18 14:30
+ * @Version 1.0
+ */
+@Slf4j
+public class SqlRewriter {
+
+    /**
+     * 分组取前N条时的排名列
+     */
+    static final String RANK_COLUMN = "top_n_rank";
+
+    /**
+     * 按估算的行大小计算行数时预留的余量
+     */
+    private static final double BYTES_HEADROOM = 0.9;
+
+    /**
+     * 别名可能使用的引号：MySQL的单引号字符串别名、反引号和双引号标识符
+     */
+    private static final String QUOTES = "'`\"";
+
+    private static final Set<String> AGGREGATES = Set.of("SUM", "COUNT", "AVG", "MAX", "MIN");
+
+    private final AgentProperties.Rewrite properties;
+
+    public SqlRewriter(AgentProperties.Rewrite properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 改写一条结果过大的SQL
+     * @param sql 单条SQL，不含结尾的分号
+     * @param dbType 数据库类型，oracle使用ROWNUM，其他使用LIMIT
+     * @param probe 预检查读取到的结果，用于估算每行的大小
+     * @param maxRows 行数上限
+     * @param maxBytes 字节数上限
+     * @return 改写后的SQL和改写步骤，无法解析或无法改写时为空
+     */
+    public Optional<Rewrite> rewrite(String sql, String dbType, StreamingResult probe, int maxRows, long maxBytes) {
+        // 第一行就超出字节数上限时，截取行数无法解决
+        if (probe.rowCount() == 0) {
+            return Optional.empty();
+        }
+        long rowBytes = Math.max(1, probe.bytes() / probe.rowCount());
+        int targetRows = (int) Math.min(maxRows, (long) (maxBytes * BYTES_HEADROOM) / rowBytes);
+        if (targetRows < 1) {
+            return Optional.empty();
+        }
+        Select select = parse(sql);
+        if (select == null) {
+            return Optional.empty();
+        }
+        boolean oracle = "oracle".equalsIgnoreCase(dbType);
+        char quote = "mysql".equalsIgnoreCase(dbType) ? '`' : '"';
+        List<String> steps = new ArrayList<>();
+        if (select instanceof PlainSelect plain) {
+            if (pruneHelperColumns(plain, quote)) {
+                steps.add("pruneColumns");
+            }
+            // 分组取前N条会修改语句，在副本上改写，改写失败时不影响原语句
+            if (properties.isTopNPerGroup() && parse(plain.toString()) instanceof PlainSelect copy) {
+                String topN = topNPerGroup(copy, quote);
+                Select parsed = topN == null ? null : parse(topN);
+                if (parsed != null) {
+                    select = parsed;
+                    steps.add("topNPerGroup");
+                }
+            }
+        }
+        String limited = limit(select, targetRows, oracle);
+        if (limited != null) {
+            steps.add("limit" + targetRows);
+        }
+        if (steps.isEmpty()) {
+            return Optional.empty();
+        }
+        String rewritten = limited != null ? limited : select.toString();
+        log.info("[SqlRewriter] {} -> {}, steps:{}", sql, rewritten, steps);
+        return Optional.of(new Rewrite(rewritten, steps));
+    }
+
+    /**
+     * 外层 SELECT * 查询子查询时，去掉子查询中只用于外层筛选的窗口函数列（如 ROW_NUMBER() ... AS rn）
+     * @param quote 方言的标识符引号
+     * @return 是否有改动
+     */
+    boolean pruneHelperColumns(PlainSelect plain, char quote) {
+        if (plain.getSelectItems().size() != 1 || !(plain.getSelectItems().get(0).getExpression() instanceof AllColumns)
+                || !(plain.getFromItem() instanceof ParenthesedSelect parenthesed)
+                || !(parenthesed.getSelect() instanceof PlainSelect inner)
+                || (plain.getJoins() != null && !plain.getJoins().isEmpty())
+                || plain.getWhere() == null) {
+            return false;
+        }
+        Set<String> filterColumns = columns(plain.getWhere());
+        List<SelectItem<?>> kept = new ArrayList<>();
+        boolean pruned = false;
+        for (SelectItem<?> item : inner.getSelectItems()) {
+            String name = nameOf(item);
+            if (name == null) {
+                // 无法确定列名时不改写
+                return false;
+            }
+            if (item.getExpression() instanceof AnalyticExpression && filterColumns.contains(normalize(name))) {
+                pruned = true;
+            } else {
+                kept.add(new SelectItem<>(new Column(reference(name, quote))));
+            }
+        }
+        if (!pruned || kept.isEmpty()) {
+            return false;
+        }
+        plain.setSelectItems(kept);
+        return true;
+    }
+
+    /**
+     * 按多个字段分组时，按第一个分组字段分组排序，每组取前N条
+     * @param quote 方言的标识符引号
+     * @return 改写后的SQL，不满足条件时为null
+     */
+    String topNPerGroup(PlainSelect plain, char quote) {
+        if (plain.getGroupBy() == null || plain.getLimit() != null || plain.getFetch() != null
+                || plain.getDistinct() != null) {
+            return null;
+        }
+        List<?> groupBy = plain.getGroupBy().getGroupByExpressionList();
+        if (groupBy == null || groupBy.size() < 2) {
+            return null;
+        }
+        // 列名（别名）-> 表达式，窗口函数中不能引用别名
+        Map<String, SelectItem<?>> items = new LinkedHashMap<>();
+        for (SelectItem<?> item : plain.getSelectItems()) {
+            String name = nameOf(item);
+            if (name == null || RANK_COLUMN.equals(normalize(name))) {
+                return null;
+            }
+            items.put(normalize(name), item);
+        }
+        Expression partition = (Expression) groupBy.get(0);
+        String partitionName = null;
+        for (Map.Entry<String, SelectItem<?>> entry : items.entrySet()) {
+            if (sameExpression(entry.getValue().getExpression(), partition)
+                    || partition instanceof Column column && normalize(column.getColumnName()).equals(entry.getKey())) {
+                partitionName = nameOf(entry.getValue());
+                break;
+            }
+        }
+        if (partitionName == null) {
+            return null;
+        }
+        // 按别名分组时，窗口函数中使用别名对应的表达式
+        Expression partitionExpression = partition instanceof Column column
+                && items.containsKey(normalize(column.getColumnName()))
+                ? items.get(normalize(column.getColumnName())).getExpression() : partition;
+        List<String> orders = new ArrayList<>();
+        if (plain.getOrderByElements() != null) {
+            for (OrderByElement element : plain.getOrderByElements()) {
+                Expression expression = element.getExpression();
+                if (expression instanceof LongValue) {
+                    // 按序号排序无法放入窗口函数
+                    return null;
+                }
+                if (sameExpression(expression, partition) || sameExpression(expression, partitionExpression)) {
+                    continue;
+                }
+                if (expression instanceof Column column && items.containsKey(normalize(column.getColumnName()))) {
+                    expression = items.get(normalize(column.getColumnName())).getExpression();
+                }
+                orders.add(expression + (element.isAsc() ? "" : " DESC"));
+            }
+        }
+        if (orders.isEmpty()) {
+            // 没有排序字段时按第一个聚合值倒序
+            for (SelectItem<?> item : items.values()) {
+                if (item.getExpression() instanceof Function function
+                        && AGGREGATES.contains(function.getName().toUpperCase(Locale.ROOT))) {
+                    orders.add(function + " DESC");
+                    break;
+                }
+            }
+        }
+        if (orders.isEmpty()) {
+            return null;
+        }
+        String window = "ROW_NUMBER() OVER (PARTITION BY " + partitionExpression + " ORDER BY " + String.join(", ", orders) + ")";
+        try {
+            plain.getSelectItems().add(new SelectItem<>(CCJSqlParserUtil.parseExpression(window), new Alias(RANK_COLUMN)));
+        } catch (JSQLParserException e) {
+            log.debug("[SqlRewriter] 无法生成窗口函数: {}", e.getMessage());
+            return null;
+        }
+        plain.setOrderByElements(null);
+        List<String> names = new ArrayList<>();
+        items.values().forEach(item -> names.add(reference(nameOf(item), quote)));
+        return "SELECT " + String.join(", ", names) + " FROM (" + plain + ") top_n WHERE " + RANK_COLUMN
+                + " <= " + properties.getTopN() + " ORDER BY " + reference(partitionName, quote) + ", " + RANK_COLUMN;
+    }
+
+    /**
+     * 注入或收紧LIMIT，已有更小的LIMIT时不改写
+     * @return 改写后的SQL，无需改写时为null
+     */
+    String limit(Select select, int rows, boolean oracle) {
+        if (!oracle && select instanceof PlainSelect plain && plain.getFetch() == null) {
+            Limit limit = plain.getLimit();
+            if (limit != null && limit.getRowCount() instanceof LongValue value && value.getValue() <= rows) {
+                return null;
+            }
+            if (limit == null) {
+                limit = new Limit();
+                plain.setLimit(limit);
+            }
+            limit.setRowCount(new LongValue(rows));
+            return plain.toString();
+        }
+        if (oracle) {
+            return "SELECT * FROM (" + select + ") WHERE ROWNUM <= " + rows;
+        }
+        return "SELECT * FROM (" + select + ") limited LIMIT " + rows;
+    }
+
+    private static Select parse(String sql) {
+        try {
+            Statement statement = CCJSqlParserUtil.parse(sql);
+            return statement instanceof Select select ? select : null;
+        } catch (JSQLParserException e) {
+            log.debug("[SqlRewriter] 无法解析SQL: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 选择项的列名：别名或字段名
+     */
+    private static String nameOf(SelectItem<?> item) {
+        if (item.getAlias() != null) {
+            return item.getAlias().getName();
+        }
+        if (item.getExpression() instanceof Column column) {
+            return column.getColumnName();
+        }
+        return null;
+    }
+
+    private static Set<String> columns(Expression expression) {
+        Set<String> columns = new HashSet<>();
+        expression.accept(new ExpressionVisitorAdapter() {
+            @Override
+            public void visit(Column column) {
+                columns.add(normalize(column.getColumnName()));
+            }
+        });
+        return columns;
+    }
+
+    private static boolean sameExpression(Expression left, Expression right) {
+        return left.toString().equalsIgnoreCase(right.toString());
+    }
+
+    /**
+     * 外层查询引用子查询的列：带引号的别名（如MySQL中的 '编号'）去掉引号后按方言重新加上标识符引号，
+     * 直接引用单引号别名会变成字符串常量，每行都返回别名本身；不带引号的名称原样引用，保持数据库的大小写规则
+     */
+    static String reference(String name, char quote) {
+        if (name.length() < 2 || QUOTES.indexOf(name.charAt(0)) < 0
+                || name.charAt(0) != name.charAt(name.length() - 1)) {
+            return name;
+        }
+        String unquoted = name.substring(1, name.length() - 1);
+        return quote + unquoted.replace(String.valueOf(quote), String.valueOf(quote) + quote) + quote;
+    }
+
+    /**
+     * 比较列名时去掉各种引号并忽略大小写
+     */
+    private static String normalize(String name) {
+        return name.replace("`", "").replace("\"", "").replace("'", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 改写结果
+     * @param sql 改写后的SQL
+     * @param steps 改写步骤
+     */
+    public record Rewrite(String sql, List<String> steps) {
+    }
+}
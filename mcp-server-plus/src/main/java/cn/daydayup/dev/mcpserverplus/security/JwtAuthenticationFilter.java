@@ -1,5 +1,6 @@
 package cn.daydayup.dev.mcpserverplus.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.annotation.Resource;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -35,9 +36,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateToken(jwt)) {
-                String username = jwtUtils.getUserIdFromToken(jwt);
-                String role = jwtUtils.getRoleFromToken(jwt);
+            // 每个请求只验证一次令牌，同一令牌的后续请求直接使用缓存的声明
+            Claims claims = jwt == null ? null : jwtUtils.verify(jwt).orElse(null);
+            if (claims != null) {
+                String username = claims.getSubject();
+                String role = claims.get("role", String.class);
 
                 UserDetails userDetails = User.builder()
                         .username(username)
@@ -1,12 +1,23 @@
 package cn.daydayup.dev.mcpserverplus.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.jsonwebtoken.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import io.jsonwebtoken.security.Keys;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @ClassName JwtUtils
@@ -22,13 +33,44 @@ public class JwtUtils {
     // 或者确保提供的密钥足够长(至少32字节)
     private SecretKey secretKey;
 
+    /**
+     * 可复用的解析器，线程安全，密钥变化时重建
+     */
+    private JwtParser jwtParser;
+
     @Value("${mcp.security.jwt-expiration-ms:86400000}")
     private int jwtExpirationMs;
 
+    /**
+     * 已验证的令牌：令牌SHA-256摘要 -> 声明，在令牌过期时失效
+     */
+    private final Cache<String, Claims> verifiedTokens;
+
     // 在构造函数中生成安全密钥
-    public JwtUtils() {
+    public JwtUtils(@Value("${mcp.security.token-cache.max-entries:10000}") long tokenCacheMaxEntries) {
         // 生成一个符合HS512要求的安全密钥
         this.secretKey = Keys.secretKeyFor(SignatureAlgorithm.HS512);
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(secretKey).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(tokenCacheMaxEntries)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        return untilExpiration(claims);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return untilExpiration(claims);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
     }
 
     // 如果需要使用配置文件中的密钥，确保它足够长
@@ -39,6 +81,8 @@ public class JwtUtils {
             byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
             if (keyBytes.length >= 32) { // 至少32字节(256位)
                 this.secretKey = Keys.hmacShaKeyFor(keyBytes);
+                this.jwtParser = Jwts.parserBuilder().setSigningKey(secretKey).build();
+                this.verifiedTokens.invalidateAll();
             }
             // 如果密钥不够长，保持使用构造函数中生成的安全密钥
         }
@@ -57,47 +101,83 @@ public class JwtUtils {
                 .compact();
     }
 
-    public String getUserIdFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * 验证令牌并返回声明，同一令牌在过期前只验证一次签名
+     * @param token 令牌
+     * @return 声明，令牌无效或已过期时为空
+     */
+    public Optional<Claims> verify(String token) {
+        try {
+            return Optional.of(getClaims(token));
+        } catch (JwtException | IllegalArgumentException e) {
+            // Token无效
+            return Optional.empty();
+        }
+    }
 
-        return claims.getSubject();
+    /**
+     * 获取令牌的声明，命中缓存时不再验证签名
+     * @param token 令牌
+     * @return 声明
+     * @throws JwtException 令牌无效或已过期
+     */
+    public Claims getClaims(String token) {
+        String digest = digest(token);
+        Claims claims = verifiedTokens.getIfPresent(digest);
+        if (claims != null && (claims.getExpiration() == null || claims.getExpiration().after(new Date()))) {
+            return claims;
+        }
+        claims = jwtParser.parseClaimsJws(token).getBody();
+        verifiedTokens.put(digest, claims);
+        return claims;
     }
 
-    public String getRoleFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public String getUserIdFromToken(String token) {
+        return getClaims(token).getSubject();
+    }
 
-        return claims.get("role", String.class);
+    public String getRoleFromToken(String token) {
+        return getClaims(token).get("role", String.class);
     }
 
     public boolean validateToken(String token) {
-        try {
-            Jwts.parserBuilder()
-                    .setSigningKey(secretKey)
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            // Token无效
-        }
-        return false;
+        return verify(token).isPresent();
     }
 
     public boolean isTokenExpired(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return getClaims(token).getExpiration().before(new Date());
+    }
+
+    /**
+     * 已验证令牌缓存统计
+     * @return 统计信息
+     */
+    public Map<String, Object> tokenCacheStats() {
+        CacheStats stats = verifiedTokens.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requests", stats.requestCount());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("size", verifiedTokens.estimatedSize());
+        return result;
+    }
+
+    private static long untilExpiration(Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            return Long.MAX_VALUE;
+        }
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiration.getTime() - System.currentTimeMillis()));
+    }
 
-        return claims.getExpiration().before(new Date());
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     public int getExpirationMs() {
@@ -1,20 +1,32 @@
 package cn.daydayup.dev.mcpserverplus.server;
 
+import cn.daydayup.dev.mcpcommon.datasource.DataSourceRouter;
+import cn.daydayup.dev.mcpcommon.metrics.McpMetrics;
+import cn.daydayup.dev.mcpcommon.server.McpAsyncAdapters;
+import cn.daydayup.dev.mcpcommon.server.McpServerProperties;
+import cn.daydayup.dev.mcpcommon.server.ServerMode;
+import cn.daydayup.dev.mcpserverplus.agent.AgentProgress;
+import cn.daydayup.dev.mcpserverplus.agent.SqlQueryAgent;
+import cn.daydayup.dev.mcpserverplus.agent.SqlQueryAgentGraphs;
+import com.alibaba.fastjson.JSON;
+import io.modelcontextprotocol.server.McpAsyncServer;
 import io.modelcontextprotocol.server.McpServer;
 import io.modelcontextprotocol.server.McpServerFeatures;
 import io.modelcontextprotocol.server.McpSyncServer;
+import io.modelcontextprotocol.server.McpSyncServerExchange;
 import io.modelcontextprotocol.server.transport.WebMvcSseServerTransportProvider;
 import io.modelcontextprotocol.spec.McpSchema;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.bsc.langgraph4j.CompiledGraph;
-import org.bsc.langgraph4j.state.AgentState;
 import org.springframework.stereotype.Service;
+import reactor.core.scheduler.Scheduler;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @ClassName WenShuPlusMcpServer
@@ -30,32 +42,47 @@ public class WenShuPlusMcpServer {
     @Resource
     private WebMvcSseServerTransportProvider transportProvider;
 
-    @Resource(name = "sqlQueryAgentGraph")
-    private CompiledGraph<AgentState> sqlQueryAgentGraph;
+    @Resource
+    private SqlQueryAgentGraphs sqlQueryAgentGraphs;
+
+    @Resource
+    private DataSourceRouter dataSourceRouter;
+
+    @Resource
+    private McpServerProperties serverProperties;
+
+    @Resource(name = "mcpToolScheduler")
+    private Scheduler mcpToolScheduler;
+
+    @Resource
+    private McpMetrics mcpMetrics;
 
     public static final String FINAL_RESPONSE = "agent_response";
 
     @PostConstruct
     public void start() {
+        if (serverProperties.getMode() == ServerMode.ASYNC) {
+            startAsyncServer();
+        } else {
+            startSyncServer();
+        }
+    }
+
+    private void startSyncServer() {
         // 创建并配置MCP同步服务器
         McpSyncServer syncServer = McpServer.sync(transportProvider)
                 .serverInfo("Mcp-Server", "1.0.0")
-                .capabilities(McpSchema.ServerCapabilities.builder()
-                        .tools(true)
-                        .logging()
-                        .build())
+                .capabilities(serverCapabilities())
                 .build();
 
         try {
             // 添加工具、资源和提示
-            syncServer.addTool(sqlQueryAgent());
+            syncServer.addTool(McpAsyncAdapters.deadline(
+                    mcpMetrics.tool(sqlQueryAgent(), dataSourceRouter::nameOf),
+                    serverProperties.getToolTimeout()));
 
             // 发送日志通知
-            syncServer.loggingNotification(McpSchema.LoggingMessageNotification.builder()
-                    .level(McpSchema.LoggingLevel.DEBUG)
-                    .logger("custom-logger")
-                    .data("Server initialized")
-                    .build());
+            syncServer.loggingNotification(serverInitializedNotification());
         }catch (Exception e){
             // 处理异常，例如打印错误信息
             log.error("创建JSON Schema时发生错误: {}" , e.getMessage());
@@ -63,6 +90,43 @@ public class WenShuPlusMcpServer {
         }
     }
 
+    private void startAsyncServer() {
+        // 创建并配置MCP异步服务器，智能体在独立的有界线程池中运行
+        McpAsyncServer asyncServer = McpServer.async(transportProvider)
+                .serverInfo("Mcp-Server", "1.0.0")
+                .capabilities(serverCapabilities())
+                .build();
+
+        try {
+            // 添加工具、资源和提示
+            asyncServer.addTool(McpAsyncAdapters.tool(
+                    mcpMetrics.tool(sqlQueryAgent(), dataSourceRouter::nameOf),
+                    mcpToolScheduler, serverProperties.getToolTimeout())).block();
+
+            // 发送日志通知
+            asyncServer.loggingNotification(serverInitializedNotification()).subscribe();
+        }catch (Exception e){
+            // 处理异常，例如打印错误信息
+            log.error("创建JSON Schema时发生错误: {}" , e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private McpSchema.ServerCapabilities serverCapabilities() {
+        return McpSchema.ServerCapabilities.builder()
+                .tools(true)
+                .logging()
+                .build();
+    }
+
+    private McpSchema.LoggingMessageNotification serverInitializedNotification() {
+        return McpSchema.LoggingMessageNotification.builder()
+                .level(McpSchema.LoggingLevel.DEBUG)
+                .logger("custom-logger")
+                .data("Server initialized")
+                .build();
+    }
+
     /**
      * 智能体封装成一个工具
      * @return McpServerFeatures.SyncToolSpecification
@@ -70,7 +134,13 @@ public class WenShuPlusMcpServer {
     private McpServerFeatures.SyncToolSpecification sqlQueryAgent(){
         String desc = """
                 使用Text2SQL智能问数智能体查询数据库内容。
-                """;
+                sessionId 可选，上一次调用在结果元数据中返回的会话ID，同一会话的追问复用已选定的表和表结构，不传时开始新会话；
+                同一会话同时只能有一个调用；coldRun 为 true 时忽略会话状态重新选表。
+                format 可选，结果格式，结果集较大时使用 profile 返回每列的统计摘要和抽样行，代替原始数据。
+                结果元数据中 sql 为实际执行的SQL；sqlRewritten 为 true 表示结果过大时SQL已在本地改写（裁剪列、分组取前N或限制行数），
+                truncated 为 true 表示结果已按行数或字节数上限截断，两者都表示结果不完整。
+                datasource 可选，指定要查询的数据源，不传时使用默认数据源。可选数据源：
+                %s""".formatted(dataSourceRouter.describe());
         String schema = """
                 {
                   "type" : "object",
@@ -78,10 +148,24 @@ public class WenShuPlusMcpServer {
                   "properties" : {
                     "question" : {
                       "type" : "string"
+                    },
+                    "format" : {
+                      "type" : "string",
+                      "enum" : ["records", "pair", "columnar", "csv", "markdown", "profile"]
+                    },
+                    "datasource" : {
+                      "type" : "string",
+                      "enum" : %s
+                    },
+                    "sessionId" : {
+                      "type" : "string"
+                    },
+                    "coldRun" : {
+                      "type" : "boolean"
                     }
                   }
                 }
-                """;
+                """.formatted(JSON.toJSONString(dataSourceRouter.names()));
         return new McpServerFeatures.SyncToolSpecification(
                 new McpSchema.Tool("sqlQueryAgent", desc, schema),
                 (exchange, arguments) -> {
@@ -89,8 +173,24 @@ public class WenShuPlusMcpServer {
 
                     try {
                         String question = (String) arguments.get("question");
-                        String finalResult = runAgent(question);
+                        String format = (String) arguments.get("format");
+                        String datasource = (String) arguments.get(DataSourceRouter.ARGUMENT);
+                        String sessionId = (String) arguments.get("sessionId");
+                        boolean coldRun = Boolean.TRUE.equals(arguments.get("coldRun"));
+                        SqlQueryAgentGraphs.Run run = runAgent(exchange, datasource, sessionId, coldRun, question, format);
+                        String finalResult = String.valueOf(run.state().value(FINAL_RESPONSE).orElseThrow());
+                        Map<String, Object> metadata = new LinkedHashMap<>();
+                        metadata.put("format", format == null ? "default" : format);
+                        metadata.put("bytes", finalResult.getBytes(StandardCharsets.UTF_8).length);
+                        // 本地改写（裁剪列、分组取前N、限制行数）或按上限截断的结果都不完整，调用方需要知道
+                        metadata.put("sql", run.state().value("executedSql").orElse(""));
+                        metadata.put("sqlRewritten", run.state().value("sqlRewritten").orElse(false));
+                        metadata.put("truncated", run.state().value("resultTruncated").orElse(false));
+                        if (run.sessionId() != null) {
+                            metadata.put("sessionId", run.sessionId());
+                        }
                         result.add(new McpSchema.TextContent("结果内容: " + finalResult));
+                        result.add(new McpSchema.TextContent("结果元数据: " + JSON.toJSONString(metadata)));
                         return new McpSchema.CallToolResult(result, false);
                     }catch (Exception e){
                         // 处理计算过程中的异常
@@ -102,16 +202,41 @@ public class WenShuPlusMcpServer {
     }
 
     /**
-     * 运行智能体
+     * 流式运行数据源对应的智能体，每个节点完成后立即把中间结果推送给调用方
+     * @param exchange 调用方会话
+     * @param datasource 数据源名称，为空时使用默认数据源
+     * @param sessionId 会话ID，为空时不复用状态
+     * @param coldRun 是否忽略会话状态重新选表
      * @param query 智能体输入参数
-     * @return 智能体返回结果
+     * @return 智能体的最终状态和会话ID
      */
-    private String runAgent(String query){
-        Optional<AgentState> queryResult = sqlQueryAgentGraph.invoke(
-                Map.of(
-                        "question", query
-                )
-        );
-        return String.valueOf(queryResult.get().value(FINAL_RESPONSE).get());
+    private SqlQueryAgentGraphs.Run runAgent(McpSyncServerExchange exchange, String datasource, String sessionId,
+                                             boolean coldRun, String query, String format){
+        long start = System.nanoTime();
+        int[] step = {0};
+        return sqlQueryAgentGraphs.run(datasource, sessionId,
+                SqlQueryAgent.inputs(query, format, coldRun), output -> AgentProgress
+                        .describe(output.node(), output.state())
+                        .ifPresent(progress -> notifyProgress(exchange, ++step[0], output.node(), progress, start)));
+    }
+
+    /**
+     * 以日志通知的形式把节点进度发送给当前会话，发送失败（如客户端已断开）不影响智能体运行
+     */
+    private void notifyProgress(McpSyncServerExchange exchange, int step, String node, String message, long start) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("step", step);
+        data.put("node", node);
+        data.put("message", message);
+        data.put("elapsedMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        try {
+            exchange.loggingNotification(McpSchema.LoggingMessageNotification.builder()
+                    .level(McpSchema.LoggingLevel.INFO)
+                    .logger("sqlQueryAgent")
+                    .data(JSON.toJSONString(data))
+                    .build());
+        } catch (Exception e) {
+            log.debug("发送智能体进度失败: {}", e.getMessage());
+        }
     }
 }
@@ -0,0 +1,94 @@
+package cn.daydayup.dev.mcpserverplus.cache;
+
+import cn.daydayup.dev.mcpserverplus.config.AgentProperties;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuestionSqlCacheTest {
+
+    private static final String TABLES = "ds:tb_dlyc_area_hy_month";
+    private static final String SQL = "select power_month, sum(power_num) from tb_dlyc_area_hy_month group by power_month;";
+
+    private final QuestionSqlCache cache = new QuestionSqlCache(new AgentProperties.SqlCache());
+
+    @Test
+    void similarQuestionReusesSql() {
+        cache.put(TABLES, "v1", "2024年阿勒泰各月售电量", SQL);
+
+        assertEquals(Optional.of(SQL), cache.get(TABLES, "v1", "2024年阿勒泰各月售电量"));
+        assertEquals(Optional.of(SQL), cache.get(TABLES, "v1", "阿勒泰2024年每月售电量"));
+    }
+
+    @Test
+    void differentYearOrRegionMisses() {
+        cache.put(TABLES, "v1", "2024年阿勒泰各月售电量", SQL);
+
+        assertTrue(cache.get(TABLES, "v1", "2023年阿勒泰各月售电量").isEmpty());
+        assertTrue(cache.get(TABLES, "v1", "2024年伊犁各月售电量").isEmpty());
+    }
+
+    @Test
+    void comparativeWordsAreNotStopWords() {
+        cache.put(TABLES, "v1", "2024年售电量最多的行业", SQL);
+        cache.put(TABLES, "v1", "2024年售电量至多100万的行业", SQL);
+
+        assertTrue(cache.get(TABLES, "v1", "2024年售电量最少的行业").isEmpty());
+        assertTrue(cache.get(TABLES, "v1", "2024年售电量至少100万的行业").isEmpty());
+        // 多字虚词整体忽略
+        assertEquals(Optional.of(SQL), cache.get(TABLES, "v1", "查询一下2024年售电量最多的行业"));
+    }
+
+    @Test
+    void schemaChangeInvalidatesEntries() {
+        cache.put(TABLES, "v1", "2024年阿勒泰各月售电量", SQL);
+
+        assertTrue(cache.get(TABLES, "v2", "2024年阿勒泰各月售电量").isEmpty());
+        assertTrue(cache.get(TABLES, "v1", "2024年阿勒泰各月售电量").isEmpty());
+    }
+
+    @Test
+    void operatorsAndSignsAreKept() {
+        assertNotEquals(QuestionSqlCache.normalize("同比增长>5%的地区"), QuestionSqlCache.normalize("同比增长<5%的地区"));
+        assertNotEquals(QuestionSqlCache.normalize("同比增长-5%的地区"), QuestionSqlCache.normalize("同比增长5%的地区"));
+        assertNotEquals(QuestionSqlCache.normalize("增长1.5倍"), QuestionSqlCache.normalize("增长15倍"));
+        assertEquals(QuestionSqlCache.normalize("同比增长 > 5% 的地区？"), QuestionSqlCache.normalize("同比增长>5%的地区"));
+
+        cache.put(TABLES, "v1", "同比增长>5%的地区", SQL);
+        assertTrue(cache.get(TABLES, "v1", "同比增长<5%的地区").isEmpty());
+        assertTrue(cache.get(TABLES, "v1", "同比增长>-5%的地区").isEmpty());
+    }
+
+    @Test
+    void lateExpiryNotificationKeepsGroupOfNewEntry() {
+        AgentProperties.SqlCache properties = new AgentProperties.SqlCache();
+        AtomicLong nanos = new AtomicLong();
+        // 移除通知先排队，模拟异步通知晚于同一个key的新写入
+        Deque<Runnable> pending = new ArrayDeque<>();
+        QuestionSqlCache cache = new QuestionSqlCache(properties, nanos::get, pending::add);
+
+        cache.put(TABLES, "v1", "2024年阿勒泰各月售电量", "old");
+        nanos.addAndGet(properties.getTtl().toNanos() + 1);
+        cache.put(TABLES, "v1", "2024年阿勒泰各月售电量", SQL);
+        drain(pending);
+
+        assertEquals(Optional.of(SQL), cache.get(TABLES, "v1", "阿勒泰2024年每月售电量"));
+        assertEquals(1, cache.stats().get("groups"));
+
+        cache.invalidate("v1", "2024年阿勒泰各月售电量");
+        drain(pending);
+        assertEquals(0, cache.stats().get("groups"));
+    }
+
+    private static void drain(Deque<Runnable> pending) {
+        while (!pending.isEmpty()) {
+            pending.poll().run();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package cn.daydayup.dev.mcpserverplus.cache;
+
+import cn.daydayup.dev.mcpserverplus.config.AgentProperties;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+import org.junit.jupiter.api.Test;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class SessionCheckpointSaverTest {
+
+    @Test
+    void checkpointsDropResultPayloads() throws Exception {
+        AgentProperties.Session properties = new AgentProperties.Session();
+        SessionCheckpointSaver saver = new SessionCheckpointSaver(properties, Set.of("probeResult", "agent_response"));
+        RunnableConfig config = saver.config("ds/" + saver.open("ds"));
+
+        for (int i = 0; i < 3; i++) {
+            saver.put(config, Checkpoint.builder()
+                    .nodeId("executeSql")
+                    .nextNodeId("__END__")
+                    .state(Map.of("schema", "tb_org(id, name)", "lastSql", "select " + i,
+                            "probeResult", "大量结果数据", "agent_response", "大量结果数据"))
+                    .build());
+        }
+
+        Checkpoint latest = saver.get(config).orElseThrow();
+        assertEquals("tb_org(id, name)", latest.getState().get("schema"));
+        assertEquals("select 2", latest.getState().get("lastSql"));
+        assertFalse(latest.getState().containsKey("probeResult"));
+        assertFalse(latest.getState().containsKey("agent_response"));
+        assertEquals(properties.getMaxCheckpoints(), saver.list(config).size());
+    }
+}
@@ -0,0 +1,43 @@
+package cn.daydayup.dev.mcpserverplus.retrieval;
+
+import org.junit.jupiter.api.Test;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Bm25IndexTest {
+
+    @Test
+    void tokenizesChineseBigramsAndSplitsIdentifiers() {
+        assertEquals(List.of("售电", "电量", "power", "num", "hy", "name"), Tokenizer.tokenize("售电量 powerNum hy_name"));
+    }
+
+    @Test
+    void ranksMatchingTableFirstAndSupportsIncrementalUpdates() {
+        Bm25Index index = new Bm25Index(1.2, 0.75);
+        index.put("tb_dlyc_area_hy_month", terms("tb_dlyc_area_hy_month 地区行业月度售电量"));
+        index.put("tb_user_info", terms("tb_user_info 用户信息"));
+        index.put("tb_order", terms("tb_order 订单明细"));
+
+        List<Bm25Index.Hit> hits = index.search(Tokenizer.tokenize("2024年阿勒泰各月行业售电量"), 2);
+        assertEquals("tb_dlyc_area_hy_month", hits.get(0).id());
+
+        index.remove("tb_dlyc_area_hy_month");
+        index.put("tb_order", terms("tb_order 订单明细 售电量"));
+        hits = index.search(Tokenizer.tokenize("售电量"), 2);
+        assertEquals(1, hits.size());
+        assertEquals("tb_order", hits.get(0).id());
+        assertTrue(index.search(Tokenizer.tokenize("天气"), 2).isEmpty());
+    }
+
+    private static Map<String, Double> terms(String text) {
+        Map<String, Double> terms = new HashMap<>();
+        for (String token : Tokenizer.tokenize(text)) {
+            terms.merge(token, 1.0, Double::sum);
+        }
+        return terms;
+    }
+}
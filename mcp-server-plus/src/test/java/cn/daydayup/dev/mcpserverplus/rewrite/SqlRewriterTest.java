@@ -0,0 +1,113 @@
+package cn.daydayup.dev.mcpserverplus.rewrite;
+
+import cn.daydayup.dev.mcpcommon.query.StreamingResult;
+import cn.daydayup.dev.mcpserverplus.config.AgentProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlRewriterTest {
+
+    private static final int MAX_ROWS = 500;
+    private static final long MAX_BYTES = 8192;
+
+    /**
+     * 预检查读取了100行、8000字节，按每行80字节估算，字节数上限内最多92行
+     */
+    private static final StreamingResult PROBE = new StreamingResult("", 100, 101, 8000, true);
+
+    private final SqlRewriter rewriter = new SqlRewriter(new AgentProperties.Rewrite());
+
+    @Test
+    void injectsLimitFromEstimatedRowSize() {
+        SqlRewriter.Rewrite rewrite = rewriter.rewrite("select org_name, power_num from tb_dlyc_area_hy_month",
+                "mysql", PROBE, MAX_ROWS, MAX_BYTES).orElseThrow();
+
+        assertTrue(rewrite.sql().endsWith("LIMIT 92"), rewrite.sql());
+        assertEquals(1, rewrite.steps().size());
+    }
+
+    @Test
+    void tightensButNeverLoosensLimit() {
+        assertTrue(rewriter.rewrite("select * from tb_dlyc_area_hy_month limit 1000",
+                "mysql", PROBE, MAX_ROWS, MAX_BYTES).orElseThrow().sql().endsWith("LIMIT 92"));
+        assertTrue(rewriter.rewrite("select * from tb_dlyc_area_hy_month limit 10",
+                "mysql", PROBE, MAX_ROWS, MAX_BYTES).isEmpty());
+    }
+
+    @Test
+    void rewritesMultiColumnGroupByToTopNPerGroup() {
+        String sql = rewriter.rewrite("""
+                select power_month as 周期月, hy_name as 行业名称, sum(power_num) as 售电量
+                from tb_dlyc_area_hy_month
+                where org_name = '阿勒泰' and power_year = '2024'
+                group by power_month, hy_name
+                order by power_month, 售电量 desc""", "mysql", PROBE, MAX_ROWS, MAX_BYTES).orElseThrow().sql();
+
+        assertTrue(sql.contains("ROW_NUMBER() OVER (PARTITION BY power_month ORDER BY sum(power_num) DESC)"), sql);
+        assertTrue(sql.contains(SqlRewriter.RANK_COLUMN + " <= 5"), sql);
+        assertTrue(sql.startsWith("SELECT 周期月, 行业名称, 售电量 FROM"), sql);
+    }
+
+    @Test
+    void prunesRankColumnUsedOnlyForFiltering() {
+        String sql = rewriter.rewrite("""
+                select * from (
+                  select power_month, hy_name,
+                         row_number() over (partition by power_month order by power_num desc) as rn
+                  from tb_dlyc_area_hy_month
+                ) t where rn <= 5""", "mysql", PROBE, MAX_ROWS, MAX_BYTES).orElseThrow().sql();
+
+        assertTrue(sql.startsWith("SELECT power_month, hy_name FROM"), sql);
+    }
+
+    @Test
+    void requotesSingleQuotedAliasesAsIdentifiers() {
+        String sql = rewriter.rewrite("""
+                select power_month as '周期月', hy_name as '行业名称', sum(power_num) as '售电量'
+                from tb_dlyc_area_hy_month
+                where org_name = '阿勒泰' and power_year = '2024'
+                group by power_month, hy_name
+                order by power_month, 售电量 desc""", "mysql", PROBE, MAX_ROWS, MAX_BYTES).orElseThrow().sql();
+
+        // 外层引用单引号别名会变成字符串常量
+        assertTrue(sql.startsWith("SELECT `周期月`, `行业名称`, `售电量` FROM"), sql);
+        assertTrue(sql.contains("ORDER BY `周期月`, " + SqlRewriter.RANK_COLUMN), sql);
+        assertFalse(sql.contains("SELECT '周期月'"), sql);
+
+        String pruned = rewriter.rewrite("""
+                select * from (
+                  select power_month as '周期月', hy_name as '行业名称',
+                         row_number() over (partition by power_month order by power_num desc) as 'rn'
+                  from tb_dlyc_area_hy_month
+                ) t where rn <= 5""", "mysql", PROBE, MAX_ROWS, MAX_BYTES).orElseThrow().sql();
+
+        assertTrue(pruned.startsWith("SELECT `周期月`, `行业名称` FROM"), pruned);
+    }
+
+    @Test
+    void requotesForDialect() {
+        assertEquals("\"售电量\"", SqlRewriter.reference("'售电量'", '"'));
+        assertEquals("`售电量`", SqlRewriter.reference("\"售电量\"", '`'));
+        assertEquals("power_month", SqlRewriter.reference("power_month", '`'));
+    }
+
+    @Test
+    void wrapsOracleQueriesWithRownum() {
+        String sql = rewriter.rewrite("select org_name, power_num from tb_dlyc_area_hy_month",
+                "oracle", PROBE, MAX_ROWS, MAX_BYTES).orElseThrow().sql();
+
+        assertTrue(sql.endsWith("WHERE ROWNUM <= 92"), sql);
+        assertFalse(sql.contains("LIMIT"), sql);
+    }
+
+    @Test
+    void leavesUnparseableOrUnfittableSqlToTheModel() {
+        assertTrue(rewriter.rewrite("select from where", "mysql", PROBE, MAX_ROWS, MAX_BYTES).isEmpty());
+        // 第一行就超出字节数上限
+        assertTrue(rewriter.rewrite("select * from tb_dlyc_area_hy_month", "mysql",
+                new StreamingResult("", 0, 1, 0, true), MAX_ROWS, MAX_BYTES).isEmpty());
+    }
+}
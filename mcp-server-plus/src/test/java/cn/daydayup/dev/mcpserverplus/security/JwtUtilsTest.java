@@ -0,0 +1,60 @@
+package cn.daydayup.dev.mcpserverplus.security;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtUtilsTest {
+
+    private static final String SECRET = "mcp-server-plus-test-secret-0123456789";
+
+    private final JwtUtils jwtUtils = jwtUtils(60_000);
+
+    @Test
+    void verifiedTokenIsServedFromCache() {
+        String token = jwtUtils.generateToken("zhangsan", "admin");
+
+        Claims first = jwtUtils.getClaims(token);
+        Claims second = jwtUtils.getClaims(token);
+
+        assertSame(first, second);
+        assertEquals(1L, jwtUtils.tokenCacheStats().get("hits"));
+        assertEquals("admin", jwtUtils.getRoleFromToken(token));
+    }
+
+    @Test
+    void expiredTokenIsNotServedFromCache() throws InterruptedException {
+        JwtUtils shortLived = jwtUtils(1_000);
+        String token = shortLived.generateToken("zhangsan", "admin");
+        Claims claims = shortLived.getClaims(token);
+        assertEquals("zhangsan", claims.getSubject());
+
+        // 令牌过期时间精确到秒，等到过期之后再验证
+        Thread.sleep(Math.max(0, claims.getExpiration().getTime() - System.currentTimeMillis()) + 50);
+
+        assertTrue(shortLived.verify(token).isEmpty());
+    }
+
+    @Test
+    void newSecretInvalidatesTokensSignedWithOldKey() {
+        String token = jwtUtils.generateToken("zhangsan", "admin");
+        assertTrue(jwtUtils.validateToken(token));
+
+        jwtUtils.setJwtSecret(SECRET.replace("test", "prod"));
+
+        assertEquals(0L, jwtUtils.tokenCacheStats().get("size"));
+        assertTrue(jwtUtils.verify(token).isEmpty());
+        assertTrue(jwtUtils.validateToken(jwtUtils.generateToken("zhangsan", "admin")));
+    }
+
+    private static JwtUtils jwtUtils(int expirationMs) {
+        JwtUtils jwtUtils = new JwtUtils(100);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", expirationMs);
+        jwtUtils.setJwtSecret(SECRET);
+        return jwtUtils;
+    }
+}
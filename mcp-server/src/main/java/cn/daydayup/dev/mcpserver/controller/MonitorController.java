@@ -0,0 +1,86 @@
+package cn.daydayup.dev.mcpserver.controller;
+
+import cn.daydayup.dev.mcpcommon.datasource.DataSourceRegistry;
+import cn.daydayup.dev.mcpcommon.datasource.PoolStats;
+import cn.daydayup.dev.mcpcommon.query.QueryGovernor;
+import cn.daydayup.dev.mcpcommon.query.QueryResultCache;
+import cn.daydayup.dev.mcpcommon.schema.SchemaCacheStats;
+import cn.daydayup.dev.mcpcommon.schema.SchemaCatalog;
+import cn.daydayup.dev.mcpserver.web.WebCacheStats;
+import cn.daydayup.dev.mcpserver.web.WebPageReader;
+import cn.daydayup.dev.mcpserver.web.WebSearch;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import java.util.Map;
+
+/**
+ * @ClassName MonitorController
+ * @Description 运行状态监控
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 9:30
+ * @Version 1.0
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/monitor")
+public class MonitorController {
+
+    private final DataSourceRegistry dataSourceRegistry;
+
+    private final SchemaCatalog schemaCatalog;
+
+    private final QueryResultCache queryResultCache;
+
+    private final QueryGovernor queryGovernor;
+
+    private final WebPageReader webPageReader;
+
+    private final WebSearch webSearch;
+
+    @GetMapping("/datasource")
+    public Map<String, PoolStats> datasource() {
+        return dataSourceRegistry.stats();
+    }
+
+    @GetMapping("/schema-cache")
+    public SchemaCacheStats schemaCache() {
+        return schemaCatalog.stats();
+    }
+
+    @PostMapping("/schema-cache/refresh")
+    public SchemaCacheStats refreshSchemaCache(@RequestParam("datasource") String datasource) {
+        schemaCatalog.refresh(dataSourceRegistry.get(datasource));
+        return schemaCatalog.stats();
+    }
+
+    @GetMapping("/query-cache")
+    public Map<String, Object> queryCache() {
+        return queryResultCache.stats();
+    }
+
+    @GetMapping("/query-governor")
+    public Map<String, Object> queryGovernor() {
+        return queryGovernor.stats();
+    }
+
+    @PostMapping("/query-cache/invalidate")
+    public Map<String, Object> invalidateQueryCache(@RequestParam("datasource") String datasource,
+                                                    @RequestParam("table") String table) {
+        queryResultCache.invalidateTable(dataSourceRegistry.get(datasource).getId(), table);
+        return queryResultCache.stats();
+    }
+
+    @GetMapping("/web-cache")
+    public WebCacheStats webCache() {
+        return webPageReader.stats();
+    }
+
+    @GetMapping("/search-cache")
+    public Map<String, Object> searchCache() {
+        return webSearch.searchCacheStats();
+    }
+}
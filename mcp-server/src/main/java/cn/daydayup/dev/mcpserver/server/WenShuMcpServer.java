@@ -1,10 +1,22 @@
 package cn.daydayup.dev.mcpserver.server;
 
-import cn.daydayup.dev.mcpserver.config.Constants;
 import cn.daydayup.dev.mcpserver.web.WebSearch;
+import cn.daydayup.dev.mcpcommon.datasource.DataSourceRouter;
+import cn.daydayup.dev.mcpcommon.datasource.PooledDataSource;
+import cn.daydayup.dev.mcpcommon.metrics.McpMetrics;
+import cn.daydayup.dev.mcpcommon.query.QueryGovernor;
+import cn.daydayup.dev.mcpcommon.query.QueryProperties;
+import cn.daydayup.dev.mcpcommon.query.QueryResultCache;
+import cn.daydayup.dev.mcpcommon.query.ResultFormat;
+import cn.daydayup.dev.mcpcommon.query.StreamingQueryExecutor;
+import cn.daydayup.dev.mcpcommon.query.StreamingResult;
+import cn.daydayup.dev.mcpcommon.schema.SchemaCatalog;
+import cn.daydayup.dev.mcpcommon.server.McpAsyncAdapters;
+import cn.daydayup.dev.mcpcommon.server.McpServerProperties;
+import cn.daydayup.dev.mcpcommon.server.ServerMode;
 import com.alibaba.fastjson2.JSON;
-import cn.daydayup.dev.connection.core.adapter.DatabaseAdapter;
-import cn.daydayup.dev.connection.core.database.AbstractJdbcDataSource;
+import io.micrometer.core.instrument.Tags;
+import io.modelcontextprotocol.server.McpAsyncServer;
 import io.modelcontextprotocol.server.McpServer;
 import io.modelcontextprotocol.server.McpServerFeatures;
 import io.modelcontextprotocol.server.McpSyncServer;
@@ -13,17 +25,20 @@ import io.modelcontextprotocol.spec.McpSchema;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.stereotype.Service;
+import reactor.core.scheduler.Scheduler;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
-import java.sql.Statement;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -44,35 +59,67 @@ public class WenShuMcpServer {
     @Resource
     private WebSearch webSearch;
 
+    @Resource
+    private DataSourceRouter dataSourceRouter;
+
+    @Resource
+    private StreamingQueryExecutor streamingQueryExecutor;
+
+    @Resource
+    private QueryProperties queryProperties;
+
+    @Resource
+    private QueryGovernor queryGovernor;
+
+    @Resource
+    private SchemaCatalog schemaCatalog;
+
+    @Resource
+    private QueryResultCache queryResultCache;
+
+    @Resource
+    private McpServerProperties serverProperties;
+
+    @Resource
+    private McpMetrics mcpMetrics;
+
+    @Resource(name = "mcpToolScheduler")
+    private Scheduler mcpToolScheduler;
+
     @PostConstruct
     public void start() {
+        // 数据源在启动时按配置构建好连接池，工具调用时按datasource参数路由
+        if (serverProperties.getMode() == ServerMode.ASYNC) {
+            startAsyncServer();
+        } else {
+            startSyncServer();
+        }
+    }
+
+    private void startSyncServer() {
         // 创建并配置MCP同步服务器
         McpSyncServer syncServer = McpServer.sync(transportProvider)
                 .serverInfo("wenshu-server", "1.0.0")
-                .capabilities(McpSchema.ServerCapabilities.builder()
-                        .tools(true)
-                        .resources(true,true)
-                        .prompts(true)
-                        .logging()
-                        .build())
+                .capabilities(serverCapabilities())
                 .build();
 
         try {
             // 添加工具、资源和提示
-            syncServer.addTool(webSearch());
-            syncServer.addTool(listTables());
-            syncServer.addTool(getTableSchema());
-            syncServer.addTool(executeMysqlQuery());
+            syncServer.addTool(McpAsyncAdapters.deadline(mcpMetrics.tool(webSearch(), "none"),
+                    serverProperties.getToolTimeout()));
+            syncServer.addTool(McpAsyncAdapters.deadline(mcpMetrics.tool(listTables(), dataSourceRouter::nameOf),
+                    serverProperties.getToolTimeout()));
+            syncServer.addTool(McpAsyncAdapters.deadline(mcpMetrics.tool(getTableSchema(), dataSourceRouter::nameOf),
+                    serverProperties.getToolTimeout()));
+            syncServer.addTool(McpAsyncAdapters.deadline(mcpMetrics.tool(executeMysqlQuery(), dataSourceRouter::nameOf),
+                    serverProperties.getToolTimeout()));
+            dataSourceRouter.all().forEach(dataSource -> syncServer.addResource(schemaCatalogResource(dataSource)));
             syncServer.addPrompt(selectTablePrompt());
             syncServer.addPrompt(text2sqlPrompt());
             syncServer.addPrompt(dataAnalysisPrompt());
 
             // 发送日志通知
-            syncServer.loggingNotification(McpSchema.LoggingMessageNotification.builder()
-                    .level(McpSchema.LoggingLevel.DEBUG)
-                    .logger("custom-logger")
-                    .data("Server initialized")
-                    .build());
+            syncServer.loggingNotification(serverInitializedNotification());
         }catch (Exception e){
             // 处理异常，例如打印错误信息
             log.error("创建JSON Schema时发生错误: {}" , e.getMessage());
@@ -80,10 +127,55 @@ public class WenShuMcpServer {
         }
     }
 
-    private AbstractJdbcDataSource buildAbstractDataSource(){
-        DatabaseAdapter adapter = DatabaseAdapter.getAdapter();
-        adapter.setConfig(Constants.MYSQL_CONFIG);
-        return  (AbstractJdbcDataSource) adapter.getDataSource();
+    private void startAsyncServer() {
+        // 创建并配置MCP异步服务器，阻塞的JDBC和网络调用在独立的有界线程池中执行
+        McpAsyncServer asyncServer = McpServer.async(transportProvider)
+                .serverInfo("wenshu-server", "1.0.0")
+                .capabilities(serverCapabilities())
+                .build();
+
+        try {
+            // 添加工具、资源和提示
+            asyncServer.addTool(McpAsyncAdapters.tool(mcpMetrics.tool(webSearch(), "none"),
+                    mcpToolScheduler, serverProperties.getToolTimeout())).block();
+            asyncServer.addTool(McpAsyncAdapters.tool(mcpMetrics.tool(listTables(), dataSourceRouter::nameOf),
+                    mcpToolScheduler, serverProperties.getToolTimeout())).block();
+            asyncServer.addTool(McpAsyncAdapters.tool(mcpMetrics.tool(getTableSchema(), dataSourceRouter::nameOf),
+                    mcpToolScheduler, serverProperties.getToolTimeout())).block();
+            asyncServer.addTool(McpAsyncAdapters.tool(mcpMetrics.tool(executeMysqlQuery(), dataSourceRouter::nameOf),
+                    mcpToolScheduler, serverProperties.getToolTimeout())).block();
+            for (PooledDataSource dataSource : dataSourceRouter.all()) {
+                asyncServer.addResource(McpAsyncAdapters.resource(schemaCatalogResource(dataSource), mcpToolScheduler))
+                        .block();
+            }
+            asyncServer.addPrompt(McpAsyncAdapters.prompt(selectTablePrompt(), mcpToolScheduler)).block();
+            asyncServer.addPrompt(McpAsyncAdapters.prompt(text2sqlPrompt(), mcpToolScheduler)).block();
+            asyncServer.addPrompt(McpAsyncAdapters.prompt(dataAnalysisPrompt(), mcpToolScheduler)).block();
+
+            // 发送日志通知
+            asyncServer.loggingNotification(serverInitializedNotification()).subscribe();
+        }catch (Exception e){
+            // 处理异常，例如打印错误信息
+            log.error("创建JSON Schema时发生错误: {}" , e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private McpSchema.ServerCapabilities serverCapabilities() {
+        return McpSchema.ServerCapabilities.builder()
+                .tools(true)
+                .resources(true,true)
+                .prompts(true)
+                .logging()
+                .build();
+    }
+
+    private McpSchema.LoggingMessageNotification serverInitializedNotification() {
+        return McpSchema.LoggingMessageNotification.builder()
+                .level(McpSchema.LoggingLevel.DEBUG)
+                .logger("custom-logger")
+                .data("Server initialized")
+                .build();
     }
 
     /**
@@ -132,23 +224,26 @@ public class WenShuMcpServer {
         String desc = """
                 获取当前数据库中所有表的列表。
                 内部调用 execute_mysql_query 执行 'SHOW TABLES;'。
-                """;
+                    Args:
+                        datasource (str): 可选，数据源名称，不传时使用默认数据源。可选数据源：
+                %s""".formatted(dataSourceRouter.describe());
         String schema = """
                 {
                   "type" : "object",
                   "id" : "urn:jsonschema:Operation",
                   "properties" : {
+                    "datasource" : %s
                   }
                 }
-                """;
+                """.formatted(datasourceSchema());
         return new McpServerFeatures.SyncToolSpecification(
                 new McpSchema.Tool("listTables", desc, schema),
                 (exchange, arguments) -> {
                     List<McpSchema.Content> result = new ArrayList<>();
 
                     try {
-                        AbstractJdbcDataSource abstractJdbcDataSource = buildAbstractDataSource();
-                        Pair<List<String>, List<List<String>>> allTableInfo = abstractJdbcDataSource.getAllTableInfo();
+                        PooledDataSource dataSource = dataSourceRouter.resolve(arguments);
+                        Pair<List<String>, List<List<String>>> allTableInfo = schemaCatalog.getAllTableInfo(dataSource);
                         result.add(new McpSchema.TextContent("所有的表: " + JSON.toJSONString(allTableInfo)));
                         return new McpSchema.CallToolResult(result, false);
                     }catch (Exception e){
@@ -167,11 +262,13 @@ public class WenShuMcpServer {
     private McpServerFeatures.SyncToolSpecification getTableSchema(){
         String desc = """
                 获取指定数据表的结构（列信息）。
-                    内部调用 execute_mysql_query 执行 'DESCRIBE table_name;'。
+                    通过JDBC元数据（DatabaseMetaData.getColumns）读取，所有数据库返回相同的表头。
                     Args:
-                        tableName (str): 需要查询结构的数据表名称。
+                        tableName (str): 需要查询结构的数据表名称，可带前缀（MySQL为 库名.表名，其他数据库为 schema.表名）。
+                        datasource (str): 可选，数据源名称，不传时使用默认数据源。
                     Returns:
-                        str: 表结构的格式化字符串或错误信息。
+                        str: {"key":["COLUMN_NAME","TYPE_NAME","COLUMN_SIZE","IS_NULLABLE","REMARKS"],"value":[[列名,类型,长度,是否可空(YES/NO),列注释],...]}，
+                        表不存在时 value 为空数组；或错误信息。
                 """;
         String schema = """
                 {
@@ -180,10 +277,11 @@ public class WenShuMcpServer {
                   "properties" : {
                     "tableName" : {
                       "type" : "string"
-                    }
+                    },
+                    "datasource" : %s
                   }
                 }
-                """;
+                """.formatted(datasourceSchema());
 
         return new McpServerFeatures.SyncToolSpecification(
                 new McpSchema.Tool("getTableSchema", desc, schema),
@@ -191,8 +289,8 @@ public class WenShuMcpServer {
                     List<McpSchema.Content> result = new ArrayList<>();
                     String tableName = (String)arguments.get("tableName");
                     try {
-                        AbstractJdbcDataSource abstractJdbcDataSource = buildAbstractDataSource();
-                        Pair<List<String>, List<List<String>>> columnInfo = abstractJdbcDataSource.getColumnInfo(tableName);
+                        PooledDataSource dataSource = dataSourceRouter.resolve(arguments);
+                        Pair<List<String>, List<List<String>>> columnInfo = schemaCatalog.getColumnInfo(dataSource, tableName);
                         result.add(new McpSchema.TextContent("表结构: " + JSON.toJSONString(columnInfo)));
                         return new McpSchema.CallToolResult(result, false);
                     }catch (Exception e){
@@ -215,9 +313,12 @@ public class WenShuMcpServer {
                         sqlQuery (str): 由 LLM 生成的 SQL 查询语句。
                     Returns:
                         str: 格式化后的查询结果字符串或错误信息字符串。
-                             对于 SELECT，返回表头和数据行。
-                             对于 INSERT/UPDATE/DELETE，返回影响的行数。
+                             对于 SELECT，按 format 返回表头和数据行，超过行数或字节数限制时截断并标记 truncated。
+                             只支持查询语句（SELECT、SHOW、DESCRIBE、EXPLAIN），INSERT/UPDATE/DELETE 等语句直接返回错误，不会执行。
                              对于错误，返回具体的错误信息。
+                        format (str): 可选，结果格式：pair（默认，表头+数据行）、columnar（每列一个数组）、csv、markdown、records，
+                             以及profile（遍历全部结果，只返回每列的计数、空值数、最小最大值、均值标准差、近似去重数、高频值和抽样行，适合大结果集）。
+                        datasource (str): 可选，数据源名称，不传时使用默认数据源。
                 """;
         String schema = """
                 {
@@ -226,19 +327,39 @@ public class WenShuMcpServer {
                   "properties" : {
                     "sqlQuery" : {
                       "type" : "string"
-                    }
+                    },
+                    "format" : {
+                      "type" : "string",
+                      "enum" : ["pair", "columnar", "csv", "markdown", "records", "profile"]
+                    },
+                    "datasource" : %s
                   }
                 }
-                """;
+                """.formatted(datasourceSchema());
         return new McpServerFeatures.SyncToolSpecification(
                 new McpSchema.Tool("executeMysqlQuery", desc, schema),
                 (exchange, arguments) -> {
                     List<McpSchema.Content> result = new ArrayList<>();
                     String sqlQuery = (String)arguments.get("sqlQuery");
+                    ResultFormat format = ResultFormat.parse((String) arguments.get("format"), queryProperties.getDefaultFormat());
                     try {
-                        AbstractJdbcDataSource abstractJdbcDataSource = buildAbstractDataSource();
-                        Pair<List<String>, List<List<String>>> queryResult = abstractJdbcDataSource.query(sqlQuery);
-                        result.add(new McpSchema.TextContent("查询结果: " + JSON.toJSONString(queryResult)));
+                        PooledDataSource dataSource = dataSourceRouter.resolve(arguments);
+                        // 只读查询优先使用缓存结果，未命中时流式读取结果集，超过限制时提前结束，避免大结果集撑爆内存
+                        StreamingResult queryResult = queryResultCache.get(dataSource.getId(), sqlQuery, format.id()).orElse(null);
+                        if (queryResult == null) {
+                            queryResult = streamingQueryExecutor.execute(dataSource, sqlQuery, format);
+                            queryResultCache.put(dataSource.getId(), sqlQuery, format.id(), queryResult);
+                        }
+                        mcpMetrics.result(McpMetrics.TOOL, Tags.of("tool", "executeMysqlQuery", "datasource", dataSource.getId()),
+                                queryResult.rowCount(), queryResult.bytes(), queryResult.truncated());
+                        result.add(new McpSchema.TextContent("查询结果: " + queryResult.content()));
+                        result.add(new McpSchema.TextContent("结果元数据: " + resultMetadata(format, queryResult)));
+                        if (queryResult.truncated()) {
+                            result.add(new McpSchema.TextContent(format == ResultFormat.PROFILE
+                                    ? "统计摘要仅覆盖前" + queryResult.rowCount() + "行，请增加筛选条件减少数据量。"
+                                    : "查询结果已截断，仅返回前" + queryResult.rowCount()
+                                    + "行，请增加筛选条件或使用聚合减少返回的数据量，或使用profile格式获取统计摘要。"));
+                        }
                         return new McpSchema.CallToolResult(result, false);
                     }catch (Exception e){
                         // 处理计算过程中的异常
@@ -249,6 +370,43 @@ public class WenShuMcpServer {
         );
     }
 
+    /**
+     * datasource参数的JSON Schema，取值限定为已配置的数据源名称
+     */
+    private String datasourceSchema() {
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "string");
+        schema.put("enum", dataSourceRouter.names());
+        return JSON.toJSONString(schema);
+    }
+
+    private static String resultMetadata(ResultFormat format, StreamingResult queryResult) {
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("format", format.id());
+        metadata.put("rowCount", queryResult.rowCount());
+        metadata.put("bytes", queryResult.bytes());
+        metadata.put("truncated", queryResult.truncated());
+        return JSON.toJSONString(metadata);
+    }
+
+    /**
+     * 表结构目录资源，客户端无需调用工具即可读取缓存的表清单和表结构。
+     * @return McpServerFeatures.SyncResourceSpecification
+     */
+    private McpServerFeatures.SyncResourceSpecification schemaCatalogResource(PooledDataSource dataSource){
+        String uri = "schema://" + dataSource.getId() + "/catalog";
+        return new McpServerFeatures.SyncResourceSpecification(
+                new McpSchema.Resource(uri, "schemaCatalog-" + dataSource.getId(),
+                        "数据源[" + dataSource.getId() + "]的表清单及已缓存的表结构", "application/json", null),
+                (exchange, request) -> {
+                    Map<String, Object> catalog = new LinkedHashMap<>();
+                    catalog.put("tables", schemaCatalog.getAllTableInfo(dataSource));
+                    catalog.put("columns", schemaCatalog.cachedColumns(dataSource.getId()));
+                    return new McpSchema.ReadResourceResult(List.of(
+                            new McpSchema.TextResourceContents(uri, "application/json", JSON.toJSONString(catalog))));
+                }
+        );
+    }
 
     /**
      * 添加目标表选择提示到服务器
@@ -292,7 +450,7 @@ public class WenShuMcpServer {
      */
     private McpServerFeatures.SyncPromptSpecification text2sqlPrompt() {
         String selectTablePrompt = """
-                ### 指令: 熟悉MySQL数据库相关的SQL功能，你的任务是根据用户输入和表结构信息，生成符合要求且可实际执行的SQL语句。
+                ### 指令: 熟悉{dbType}数据库相关的SQL功能，你的任务是根据用户输入和表结构信息，生成符合要求且可在{dbType}上实际执行的SQL语句。
                 ### 表结构：{tableSchema}
                 ### 用户输入: {userInput}
                 ### 输出要求: 输出分析思路和SQL语句，输出字段必须为中文描述。
@@ -304,7 +462,8 @@ public class WenShuMcpServer {
                         new ArrayList<>(
                                 List.of(
                                         new McpSchema.PromptArgument("tableSchema", "数据库表结构", true),
-                                        new McpSchema.PromptArgument("userInput", "用户输入的问题", true)
+                                        new McpSchema.PromptArgument("userInput", "用户输入的问题", true),
+                                        new McpSchema.PromptArgument(DataSourceRouter.ARGUMENT, "表所在的数据源名称，用于确定SQL方言，可选", false)
                                 ))),
                 (exchange, request) -> {
                     // 处理提示请求
@@ -312,7 +471,9 @@ public class WenShuMcpServer {
                     String tableSchema = (String) request.arguments().get("tableSchema");
                     String userInput = (String) request.arguments().get("userInput");
 
-                    String finalPrompt = selectTablePrompt.replace("{tableSchema}", tableSchema).replace("{userInput}", userInput);
+                    String dbType = dataSourceRouter.resolve(request.arguments()).getType();
+                    String finalPrompt = selectTablePrompt.replace("{dbType}", StringUtils.defaultIfBlank(dbType, "mysql"))
+                            .replace("{tableSchema}", tableSchema).replace("{userInput}", userInput);
 
                     // 创建对话消息序列
                     McpSchema.PromptMessage userMessage = new McpSchema.PromptMessage(
@@ -334,20 +495,41 @@ public class WenShuMcpServer {
                 ### 用户输入: {userInput}
                 ### 输出要求: 输出数据分析报告，要求：详细、专业、严谨。
                 """;
+        String profilePrompt = """
+                ### 指令: 基于查询结果的统计摘要，进行详细的数据分析。
+                ### SQL查询语句：{sqlQuery}
+                ### 查询结果统计摘要：{SQLResult}
+                ### 摘要说明：rowCount为结果行数；columns为每列的统计，count为非空值数，nulls为空值数，distinct为近似去重数，
+                min/max为最小最大值，mean/stddev为数值列的均值和标准差，topValues为高频值及出现次数；sample为随机抽样的行。
+                ### 用户输入: {userInput}
+                ### 输出要求: 输出数据分析报告，要求：详细、专业、严谨，结论需以统计摘要为依据。
+                """;
         // 创建提示规范，包含提示定义和处理逻辑
         return new McpServerFeatures.SyncPromptSpecification(
                 // 定义提示的基本信息和参数
                 new McpSchema.Prompt("dataAnalysisPrompt", "数据分析报告提示词模板",
                         new ArrayList<>(
                                 List.of(
-                                        new McpSchema.PromptArgument("SQLResult", "数据库查询结果", true)
+                                        new McpSchema.PromptArgument("SQLResult", "数据库查询结果，与sqlQuery二选一", false),
+                                        new McpSchema.PromptArgument("sqlQuery",
+                                                "查询语句，结果集较大时传入，服务端遍历全部结果生成统计摘要代替原始数据", false),
+                                        new McpSchema.PromptArgument(DataSourceRouter.ARGUMENT, "sqlQuery所在的数据源名称，可选", false)
                                 ))),
                 (exchange, request) -> {
                     // 处理提示请求
                     List<McpSchema.PromptMessage> messages = new ArrayList<>();
                     String SQLResult = (String) request.arguments().get("SQLResult");
-
-                    String finalPrompt = selectTablePrompt.replace("{SQLResult}", SQLResult);
+                    String sqlQuery = (String) request.arguments().get("sqlQuery");
+
+                    String finalPrompt;
+                    if (StringUtils.isNotBlank(sqlQuery)) {
+                        finalPrompt = profilePrompt.replace("{sqlQuery}", sqlQuery)
+                                .replace("{SQLResult}", profile(request.arguments(), sqlQuery));
+                    } else if (SQLResult != null) {
+                        finalPrompt = selectTablePrompt.replace("{SQLResult}", SQLResult);
+                    } else {
+                        throw new IllegalArgumentException("SQLResult和sqlQuery至少传入一个");
+                    }
 
                     // 创建对话消息序列
                     McpSchema.PromptMessage userMessage = new McpSchema.PromptMessage(
@@ -361,72 +543,124 @@ public class WenShuMcpServer {
 
 
     /**
-     * 执行给定的 SQL 查询语句并返回结果或错误信息。
+     * 执行查询并生成统计摘要，优先使用缓存结果
+     * @param arguments 提示参数，datasource为空时使用默认数据源
+     * @param sqlQuery 查询语句
+     * @return JSON格式的统计摘要
+     */
+    private String profile(Map<String, Object> arguments, String sqlQuery) {
+        PooledDataSource dataSource = dataSourceRouter.resolve(arguments);
+        String format = ResultFormat.PROFILE.id();
+        try {
+            StreamingResult profile = queryResultCache.get(dataSource.getId(), sqlQuery, format).orElse(null);
+            if (profile == null) {
+                profile = streamingQueryExecutor.execute(dataSource, sqlQuery, ResultFormat.PROFILE);
+                queryResultCache.put(dataSource.getId(), sqlQuery, format, profile);
+            }
+            return profile.content();
+        } catch (SQLException e) {
+            throw new IllegalStateException("生成统计摘要失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 在默认数据源上执行给定的 SQL 查询语句并返回结果或错误信息。
      * @param sql 查询语句
      * @return 查询结果
      */
     public String execute_mysql_query(String sql) {
-        AbstractJdbcDataSource abstractJdbcDataSource = buildAbstractDataSource();
+        return execute_mysql_query(null, sql);
+    }
+
+    /**
+     * 执行给定的 SQL 查询语句并返回结果或错误信息。
+     * @param datasource 数据源名称，为空时使用默认数据源
+     * @param sql 查询语句
+     * @return 查询结果
+     */
+    public String execute_mysql_query(String datasource, String sql) {
         List<Map<String, Object>> list = new ArrayList<>();
         try {
-            Statement statement = abstractJdbcDataSource.getConnection().createStatement();
-            ResultSet resultSet = statement.executeQuery(sql);
-
-            // 获取结果集元数据
-            ResultSetMetaData metaData = resultSet.getMetaData();
-            while (resultSet.next()) {
-                // 创建一个Map来存储当前行的数据
-                Map<String, Object> rowMap = new HashMap<>();
-                // 遍历结果集中的列
-                for (int i = 1; i <= metaData.getColumnCount(); i++) {
-                    // 获取列名
-                    String columnName = metaData.getColumnLabel(i);
-                    // 获取列值
-                    Object columnValue = resultSet.getObject(i);
-                    // 判断是不是小数
-                    if (isStringFloatingPointNumber(String.valueOf(columnValue))){
-                        // 限制小数点位数
-                        rowMap.put(columnName, limitDecimalPlaces(columnValue));
-                    }else {
-                        // 将列名和列值放入Map
-                        rowMap.put(columnName, columnValue);
-                    }
+            PooledDataSource dataSource = dataSourceRouter.resolve(datasource);
+            // 超时、并发数和取消由查询管控统一处理，连接、语句和结果集在其中关闭；多取一行用于判断是否被截断
+            queryGovernor.execute(dataSource, queryProperties.getMaxRows() + 1, statement -> {
+                try (ResultSet resultSet = statement.executeQuery(sql)) {
+                    readRows(resultSet, list);
                 }
-                // 将当前行的Map添加到结果列表中
-                list.add(rowMap);
-            }
+                return list;
+            });
         }catch (Exception e){
             e.printStackTrace();
         }
         return JSON.toJSONString(list);
     }
 
-    private boolean isStringFloatingPointNumber(String strNum) {
-        if (strNum == null) {
-            return false;
+    /**
+     * 逐行读取结果集，超过行数上限或内存预算时截断
+     */
+    private void readRows(ResultSet resultSet, List<Map<String, Object>> list) throws SQLException {
+        // 每个结果集只读取一次列名和列类型，按列类型确定取值方式
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] labels = new String[columnCount];
+        ColumnReader[] readers = new ColumnReader[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            labels[i - 1] = metaData.getColumnLabel(i);
+            readers[i - 1] = columnReader(metaData.getColumnType(i));
         }
-        try {
-            Double.parseDouble(strNum);
-            // 检查是否确实含有小数点
-            return strNum.indexOf('.') >= 0;
-        } catch (NumberFormatException e) {
-            return false;
+        long bytes = 0;
+        while (resultSet.next()) {
+            if (list.size() >= queryProperties.getMaxRows() || bytes > queryProperties.getMaxBytes()) {
+                log.warn("查询结果超过{}行或{}字节，已截断", queryProperties.getMaxRows(), queryProperties.getMaxBytes());
+                break;
+            }
+            // 创建一个Map来存储当前行的数据
+            Map<String, Object> rowMap = new HashMap<>(columnCount * 4 / 3 + 1);
+            for (int i = 0; i < columnCount; i++) {
+                Object value = readers[i].read(resultSet, i + 1);
+                rowMap.put(labels[i], value);
+                bytes += labels[i].length() + (value instanceof CharSequence text ? text.length() : 16);
+            }
+            // 将当前行的Map添加到结果列表中
+            list.add(rowMap);
         }
     }
 
-    private BigDecimal limitDecimalPlaces(Object number) {
-        if (number == null) {
-            throw new IllegalArgumentException("Number cannot be null");
-        }
-        // 将传入的对象转换为BigDecimal
-        BigDecimal bigDecimalNumber = new BigDecimal(number.toString());
-        // 获取小数部分的位数
-        int scale = bigDecimalNumber.scale();
-        // 如果小数部分超过4位，则进行处理
-        if (scale > 4) {
-            // 设置最多四位小数，并且定义舍入模式
-            bigDecimalNumber = bigDecimalNumber.setScale(4, RoundingMode.HALF_UP);
-        }
-        return bigDecimalNumber;
+    /**
+     * 按列类型取值：只有小数类型的列限制小数位数，其他列原样返回
+     * @param sqlType java.sql.Types 中的列类型
+     * @return 列取值方式
+     */
+    static ColumnReader columnReader(int sqlType) {
+        return switch (sqlType) {
+            case Types.DECIMAL, Types.NUMERIC -> (resultSet, index) -> {
+                BigDecimal value = resultSet.getBigDecimal(index);
+                return value == null ? null : limitDecimalPlaces(value);
+            };
+            case Types.DOUBLE, Types.FLOAT, Types.REAL -> (resultSet, index) -> {
+                double value = resultSet.getDouble(index);
+                if (resultSet.wasNull()) {
+                    return null;
+                }
+                // NaN 和无穷大无法转换为BigDecimal，原样返回
+                return Double.isFinite(value) ? limitDecimalPlaces(BigDecimal.valueOf(value)) : value;
+            };
+            default -> ResultSet::getObject;
+        };
+    }
+
+    /**
+     * 小数部分超过4位时四舍五入到4位
+     */
+    public static BigDecimal limitDecimalPlaces(BigDecimal number) {
+        return number.scale() > 4 ? number.setScale(4, RoundingMode.HALF_UP) : number;
+    }
+
+    /**
+     * 单列的取值方式
+     */
+    @FunctionalInterface
+    interface ColumnReader {
+        Object read(ResultSet resultSet, int index) throws SQLException;
     }
 }
@@ -0,0 +1,22 @@
+package cn.daydayup.dev.mcpserver.web;
+
+import com.google.gson.JsonObject;
+import serpapi.SerpApiSearchException;
+import java.util.Map;
+
+/**
+ * @ClassName SearchClient
+ * @Description 搜索引擎客户端
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 15:10
+ * @Version 1.0
+ */
+public interface SearchClient {
+
+    /**
+     * 执行搜索
+     * @param parameter 搜索参数
+     * @return 搜索结果
+     */
+    JsonObject search(Map<String, String> parameter) throws SerpApiSearchException;
+}
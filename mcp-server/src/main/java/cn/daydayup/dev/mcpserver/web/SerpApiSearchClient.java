@@ -0,0 +1,29 @@
+package cn.daydayup.dev.mcpserver.web;
+
+import cn.daydayup.dev.mcpserver.config.Constants;
+import com.google.gson.JsonObject;
+import org.springframework.stereotype.Component;
+import serpapi.GoogleSearch;
+import serpapi.SerpApiSearch;
+import serpapi.SerpApiSearchException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @ClassName SerpApiSearchClient
+ * @Description 基于SerpApi的谷歌搜索客户端
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 15:10
+ * @Version 1.0
+ */
+@Component
+public class SerpApiSearchClient implements SearchClient {
+
+    @Override
+    public JsonObject search(Map<String, String> parameter) throws SerpApiSearchException {
+        Map<String, String> request = new HashMap<>(parameter);
+        request.put("api_key", Constants.WEB_SEARCH_KEY);
+        SerpApiSearch googleSearch = new GoogleSearch(request);
+        return googleSearch.getJson();
+    }
+}
@@ -0,0 +1,17 @@
+package cn.daydayup.dev.mcpserver.web;
+
+/**
+ * @ClassName WebCacheStats
+ * @Description 网页内容缓存统计
+ * @Author ZhaoYanNing
+ * @Date 2026/10/17 14:30
+ * @Version 1.0
+ */
+public record WebCacheStats(long requests,
+                            long hits,
+                            long revalidated,
+                            long misses,
+                            double hitRatio,
+                            long bytesSaved,
+                            long size) {
+}
@@ -1,9 +1,36 @@
 package cn.daydayup.dev.mcpserver.web;
 
+import cn.daydayup.dev.mcpcommon.metrics.McpMetrics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @ClassName WebPageReader
@@ -15,18 +42,268 @@ import org.springframework.stereotype.Service;
 @Slf4j
 @Service
 public class WebPageReader {
+
+    private static final String USER_AGENT = "Mozilla/5.0 (compatible; wenshu-mcp-server/1.0)";
+
+    @Resource
+    private McpMetrics mcpMetrics;
+
+    /**
+     * 单个网页的读取超时时间（毫秒），包括建立连接、等待响应头和读取正文的全部时间
+     */
+    @Value("${mcp.web.page-timeout-ms:5000}")
+    private int pageTimeoutMs;
+
+    /**
+     * 单个网页最多读取的字节数
+     */
+    @Value("${mcp.web.max-body-bytes:2097152}")
+    private int maxBodyBytes;
+
+    /**
+     * 最多缓存的网页数量
+     */
+    @Value("${mcp.web.cache.max-entries:500}")
+    private long cacheMaxEntries;
+
+    /**
+     * 缓存内容的新鲜期，过期后使用 ETag/Last-Modified 做条件请求
+     */
+    @Value("${mcp.web.cache.ttl:10m}")
+    private Duration cacheTtl;
+
+    /**
+     * 缓存条目的最长保留时间
+     */
+    @Value("${mcp.web.cache.max-age:1h}")
+    private Duration cacheMaxAge;
+
+    /**
+     * 共享的HTTP客户端，复用keep-alive连接
+     */
+    private HttpClient httpClient;
+
+    private Cache<String, CachedPage> pageCache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder revalidated = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(pageTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        pageCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxEntries)
+                .expireAfterWrite(cacheMaxAge)
+                .build();
+        registerMetrics(mcpMetrics.registry());
+    }
+
+    /**
+     * 把缓存命中、重新校验、未命中次数、节省的字节数和缓存大小注册到指标中，
+     * 命中率由 hit 与 revalidated 占全部请求的比例计算
+     */
+    private void registerMetrics(MeterRegistry registry) {
+        cacheCounter(registry, "hit", hits);
+        cacheCounter(registry, "revalidated", revalidated);
+        cacheCounter(registry, "miss", misses);
+        FunctionCounter.builder(McpMetrics.WEB_PAGE + ".cache.bytes.saved", bytesSaved, LongAdder::sum)
+                .description("缓存命中和304重新校验节省下载的字节数")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder(McpMetrics.WEB_PAGE + ".cache.size", this, reader -> reader.pageCache.estimatedSize())
+                .description("缓存的网页数量")
+                .register(registry);
+    }
+
+    private static void cacheCounter(MeterRegistry registry, String outcome, LongAdder counter) {
+        FunctionCounter.builder(McpMetrics.WEB_PAGE + ".cache.requests", counter, LongAdder::sum)
+                .description("网页缓存请求次数")
+                .tags("outcome", outcome)
+                .register(registry);
+    }
+
     public String read(String url) {
+        // outcome：hit 缓存命中，revalidated 条件请求返回304，miss 重新读取，error 读取失败
+        Timer.Sample sample = mcpMetrics.start();
+        String[] outcome = {"error"};
         try {
-            // 使用Jsoup获取网页内容
-            Document doc = Jsoup.connect(url).get();
+            return read(url, outcome);
+        } finally {
+            mcpMetrics.stop(sample, McpMetrics.WEB_PAGE, Tags.of("outcome", outcome[0]));
+        }
+    }
+
+    private String read(String url, String[] outcome) {
+        CachedPage cached = pageCache.getIfPresent(url);
+        if (cached != null && cached.isFresh(cacheTtl)) {
+            hits.increment();
+            bytesSaved.add(cached.bodyBytes());
+            outcome[0] = "hit";
+            return cached.text();
+        }
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(Duration.ofMillis(pageTimeoutMs))
+                    .header("User-Agent", USER_AGENT)
+                    .GET();
+            if (cached != null) {
+                // 缓存已过新鲜期，带上校验信息做条件请求
+                if (cached.etag() != null) {
+                    request.header("If-None-Match", cached.etag());
+                }
+                if (cached.lastModified() != null) {
+                    request.header("If-Modified-Since", cached.lastModified());
+                }
+            }
+            HttpResponse<byte[]> response = fetch(request.build());
+            if (response.statusCode() == 304 && cached != null) {
+                revalidated.increment();
+                bytesSaved.add(cached.bodyBytes());
+                pageCache.put(url, cached.revalidate());
+                outcome[0] = "revalidated";
+                return cached.text();
+            }
+            misses.increment();
+            if (response.statusCode() >= 400) {
+                log.error("读取网页内容时发生错误: {} 返回状态码 {}", url, response.statusCode());
+                return "";
+            }
+            byte[] bytes = response.body();
+            Document doc = Jsoup.parse(new ByteArrayInputStream(bytes), charset(response), url);
             // 输出网页标题
             log.info("网页标题: {}" , doc.title());
             // 输出网页正文（假设正文在某个标签内）
-            return doc.body().text();
+            String text = doc.body().text();
+            pageCache.put(url, new CachedPage(text,
+                    response.headers().firstValue("ETag").orElse(null),
+                    response.headers().firstValue("Last-Modified").orElse(null),
+                    bytes.length,
+                    System.nanoTime()));
+            outcome[0] = "miss";
+            return text;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "";
+        } catch (TimeoutException e) {
+            log.error("读取网页内容超时: {} 超过 {}ms", url, pageTimeoutMs);
+            return "";
         } catch (Exception e) {
             log.error("读取网页内容时发生错误: {}" , e.getMessage());
-            e.printStackTrace();
             return "";
         }
     }
+
+    /**
+     * 发送请求并读取正文，HttpRequest.timeout 只限制等待响应头的时间，
+     * 这里用同一个超时时间限制整个请求，避免服务端缓慢地逐字节返回正文时长时间占用线程
+     */
+    private HttpResponse<byte[]> fetch(HttpRequest request) throws Exception {
+        CompletableFuture<HttpResponse<byte[]>> future = httpClient.sendAsync(request, info ->
+                // 304 和错误状态码不需要正文
+                info.statusCode() == 304 || info.statusCode() >= 400
+                        ? HttpResponse.BodySubscribers.replacing(new byte[0])
+                        : new LimitedBodySubscriber(maxBodyBytes));
+        try {
+            return future.get(pageTimeoutMs, TimeUnit.MILLISECONDS);
+        } finally {
+            // 超时或被中断时中止请求，释放连接；已完成时不做任何事
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * 网页缓存统计
+     * @return 统计信息
+     */
+    public WebCacheStats stats() {
+        long hitCount = hits.sum();
+        long revalidatedCount = revalidated.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + revalidatedCount + missCount;
+        double hitRatio = requests == 0 ? 0 : (double) (hitCount + revalidatedCount) / requests;
+        return new WebCacheStats(requests, hitCount, revalidatedCount, missCount, hitRatio,
+                bytesSaved.sum(), pageCache.estimatedSize());
+    }
+
+    /**
+     * 从 Content-Type 中解析字符集，解析不到时交给 Jsoup 从页面 meta 中识别
+     */
+    private static String charset(HttpResponse<?> response) {
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        for (String part : contentType.split(";")) {
+            String param = part.trim();
+            if (param.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                return param.substring("charset=".length()).replace("\"", "").trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 限制页面大小的正文读取，读满上限后取消订阅，超出部分直接丢弃
+     */
+    private static final class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+
+        private final int limit;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+
+        LimitedBodySubscriber(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            for (ByteBuffer item : items) {
+                int length = Math.min(item.remaining(), limit - buffer.size());
+                byte[] chunk = new byte[length];
+                item.get(chunk);
+                buffer.write(chunk, 0, length);
+                if (buffer.size() >= limit) {
+                    subscription.cancel();
+                    body.complete(buffer.toByteArray());
+                    return;
+                }
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            body.complete(buffer.toByteArray());
+        }
+    }
+
+    private record CachedPage(String text, String etag, String lastModified, long bodyBytes, long fetchedAt) {
+
+        boolean isFresh(Duration ttl) {
+            return System.nanoTime() - fetchedAt < ttl.toNanos();
+        }
+
+        CachedPage revalidate() {
+            return new CachedPage(text, etag, lastModified, bodyBytes, System.nanoTime());
+        }
+    }
 }
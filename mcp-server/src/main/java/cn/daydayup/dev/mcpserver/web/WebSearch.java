@@ -1,15 +1,34 @@
 package cn.daydayup.dev.mcpserver.web;
 
-import cn.daydayup.dev.mcpserver.config.Constants;
+import cn.daydayup.dev.mcpcommon.concurrent.BoundedExecutors;
+import cn.daydayup.dev.mcpcommon.metrics.McpMetrics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.google.gson.JsonElement;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import serpapi.GoogleSearch;
-import serpapi.SerpApiSearch;
 import serpapi.SerpApiSearchException;
 import com.google.gson.JsonObject;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @ClassName WebSearch
@@ -18,31 +37,199 @@ import java.util.Map;
  * @Date 2025/4/21 9:52
  * @Version 1.0
  */
+@Slf4j
 @Service
 public class WebSearch {
 
+    private static final String HL = "zh-cn";
+    private static final String GL = "cn";
+    private static final String NUM = "3";
+
     @Resource
     private WebPageReader webPageReader;
 
+    @Resource
+    private SearchClient searchClient;
+
+    @Resource
+    private McpMetrics mcpMetrics;
+
+    /**
+     * 并发读取网页的线程数
+     */
+    @Value("${mcp.web.fetch-threads:16}")
+    private int fetchThreads;
+
+    /**
+     * 一次搜索读取所有网页的总时长（毫秒），超时未返回的网页直接跳过
+     */
+    @Value("${mcp.web.search-deadline-ms:8000}")
+    private long searchDeadlineMs;
+
+    /**
+     * 搜索结果缓存时间
+     */
+    @Value("${mcp.web.search-cache.ttl:30m}")
+    private Duration searchCacheTtl;
+
+    /**
+     * 最多缓存的搜索结果数量
+     */
+    @Value("${mcp.web.search-cache.max-entries:1000}")
+    private long searchCacheMaxEntries;
+
+    private ExecutorService fetchExecutor;
+
+    /**
+     * 规范化的搜索条件 -> 搜索结果链接
+     */
+    private Cache<SearchKey, List<String>> searchCache;
+
+    @PostConstruct
+    public void init() {
+        fetchExecutor = BoundedExecutors.newBoundedExecutor("web-fetch", fetchThreads, fetchThreads * 4);
+        searchCache = Caffeine.newBuilder()
+                .expireAfterWrite(searchCacheTtl)
+                .maximumSize(searchCacheMaxEntries)
+                .recordStats()
+                .build();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        fetchExecutor.shutdownNow();
+    }
+
     public String search(String question) throws SerpApiSearchException {
+        try {
+            return mcpMetrics.record(McpMetrics.WEB_SEARCH, Tags.empty(), () -> doSearch(question));
+        } catch (SerpApiSearchException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private String doSearch(String question) throws SerpApiSearchException {
         StringBuilder webResults = new StringBuilder();
+        List<String> links = searchLinks(question);
+
+        // 并发读取所有网页，总耗时取决于预算内最慢的网页
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(searchDeadlineMs);
+        List<Future<String>> pages = new ArrayList<>();
+        for (String link : links) {
+            try {
+                pages.add(fetchExecutor.submit(() -> webPageReader.read(link)));
+            } catch (RejectedExecutionException e) {
+                mcpMetrics.count(McpMetrics.WEB_SEARCH + ".skipped", Tags.of("reason", "rejected"));
+                log.warn("网页读取任务过多，跳过: {}", link);
+            }
+        }
+        // 按搜索排名顺序拼接结果
+        for (Future<String> page : pages) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                String webResult = page.get(remaining, TimeUnit.NANOSECONDS);
+                webResults.append(webResult).append("\n");
+            } catch (TimeoutException e) {
+                page.cancel(true);
+                mcpMetrics.count(McpMetrics.WEB_SEARCH + ".skipped", Tags.of("reason", "timeout"));
+                log.warn("网页读取超出时间预算，已跳过");
+            } catch (ExecutionException e) {
+                log.error("读取网页内容时发生错误: {}", e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pages.forEach(p -> p.cancel(true));
+                break;
+            }
+        }
+        return webResults.toString();
+    }
+
+    /**
+     * 搜索结果缓存统计
+     * @return 统计信息
+     */
+    public Map<String, Object> searchCacheStats() {
+        CacheStats stats = searchCache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requests", stats.requestCount());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("upstreamCalls", stats.loadCount());
+        result.put("size", searchCache.estimatedSize());
+        return result;
+    }
+
+    /**
+     * 查询搜索结果链接，相同的规范化查询共享缓存，并发的相同查询只会请求一次搜索引擎
+     */
+    private List<String> searchLinks(String question) throws SerpApiSearchException {
+        SearchKey key = new SearchKey(normalize(question), HL, GL, NUM);
+        try {
+            List<String> links = searchCache.get(key, this::requestLinks);
+            return links == null ? List.of() : links;
+        } catch (SearchFailedException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 请求搜索引擎，没有搜索结果时返回null，不缓存空结果（可能是搜索引擎临时异常）
+     */
+    private List<String> requestLinks(SearchKey key) {
         Map<String, String> parameter = new HashMap<>();
-        parameter.put("api_key", Constants.WEB_SEARCH_KEY);
-        parameter.put("q", question);
-        parameter.put("hl", "zh-cn");
-        parameter.put("gl", "cn");
+        parameter.put("q", key.query());
+        parameter.put("hl", key.hl());
+        parameter.put("gl", key.gl());
         parameter.put("google_domain", "google.com");
         parameter.put("safe", "active");
-        parameter.put("num", "3");
+        parameter.put("num", key.num());
         parameter.put("device", "desktop");
-        SerpApiSearch googleSearch = new GoogleSearch(parameter);
-        JsonObject json = googleSearch.getJson();
+        JsonObject json;
+        try {
+            json = searchClient.search(parameter);
+        } catch (SerpApiSearchException e) {
+            throw new SearchFailedException(e);
+        }
+        List<String> links = new ArrayList<>();
         JsonElement organicResults = json.get("organic_results");
-        for (JsonElement jsonElement : organicResults.getAsJsonArray()) {
-            String link = jsonElement.getAsJsonObject().get("link").getAsString();
-            String webResult = webPageReader.read(link);
-            webResults.append(webResult).append("\n");
+        if (organicResults != null && organicResults.isJsonArray()) {
+            for (JsonElement jsonElement : organicResults.getAsJsonArray()) {
+                links.add(jsonElement.getAsJsonObject().get("link").getAsString());
+            }
+        }
+        if (links.isEmpty()) {
+            log.warn("搜索引擎没有返回搜索结果: {}", key.query());
+            return null;
+        }
+        return List.copyOf(links);
+    }
+
+    /**
+     * 查询规范化：全半角统一、去除首尾空白、合并连续空白、统一小写
+     */
+    static String normalize(String question) {
+        String normalized = Normalizer.normalize(question == null ? "" : question, Normalizer.Form.NFKC);
+        return normalized.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private record SearchKey(String query, String hl, String gl, String num) {
+    }
+
+    /**
+     * 在缓存加载函数中透传搜索异常
+     */
+    private static class SearchFailedException extends RuntimeException {
+
+        SearchFailedException(SerpApiSearchException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SerpApiSearchException getCause() {
+            return (SerpApiSearchException) super.getCause();
         }
-        return webResults.toString();
     }
 }
@@ -0,0 +1,105 @@
+package cn.daydayup.dev.mcpserver.web;
+
+import cn.daydayup.dev.mcpcommon.metrics.McpMetrics;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WebSearchTest {
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private WebSearch webSearch;
+
+    @BeforeEach
+    void setUp() {
+        SearchClient stub = parameter -> {
+            upstreamCalls.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            if (parameter.get("q").contains("无结果")) {
+                // 搜索引擎没有返回 organic_results
+                return new JsonObject();
+            }
+            JsonObject result = new JsonObject();
+            result.addProperty("link", "https://example.com/" + parameter.get("q").replace(' ', '-'));
+            JsonArray organicResults = new JsonArray();
+            organicResults.add(result);
+            JsonObject json = new JsonObject();
+            json.add("organic_results", organicResults);
+            return json;
+        };
+        WebPageReader webPageReader = mock(WebPageReader.class);
+        when(webPageReader.read(anyString())).thenAnswer(invocation -> "page:" + invocation.getArgument(0));
+
+        webSearch = new WebSearch();
+        ReflectionTestUtils.setField(webSearch, "searchClient", stub);
+        ReflectionTestUtils.setField(webSearch, "webPageReader", webPageReader);
+        ReflectionTestUtils.setField(webSearch, "mcpMetrics", new McpMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(webSearch, "fetchThreads", 2);
+        ReflectionTestUtils.setField(webSearch, "searchDeadlineMs", 2000L);
+        ReflectionTestUtils.setField(webSearch, "searchCacheTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(webSearch, "searchCacheMaxEntries", 100L);
+        webSearch.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        webSearch.destroy();
+    }
+
+    @Test
+    void normalizedQueriesShareOneUpstreamCall() throws Exception {
+        release.countDown();
+
+        String first = webSearch.search("  阿勒泰  售电量 ");
+        String second = webSearch.search("阿勒泰 售电量");
+
+        assertEquals(first, second);
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void emptyResultsAreNotCached() throws Exception {
+        release.countDown();
+
+        assertEquals("", webSearch.search("无结果的查询"));
+        assertEquals("", webSearch.search("无结果的查询"));
+
+        assertEquals(2, upstreamCalls.get());
+        assertEquals(0L, webSearch.searchCacheStats().get("size"));
+    }
+
+    @Test
+    void concurrentIdenticalSearchesAreDeduplicated() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> a = callers.submit(() -> webSearch.search("Power Sales"));
+            Future<String> b = callers.submit(() -> webSearch.search("power   sales"));
+            Future<String> c = callers.submit(() -> webSearch.search("POWER SALES"));
+            Thread.sleep(200);
+            release.countDown();
+
+            assertEquals(a.get(), b.get());
+            assertEquals(a.get(), c.get());
+            assertEquals(1, upstreamCalls.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+}